@@ -0,0 +1,386 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/** An asynchronous facade over the Huffman Coding Compression Method. Files are read and written using asynchronous file channels, and compressed on a dedicated pool of threads, so the calling thread never blocks.
+ * @author Henry Wang
+ */
+public class AsyncHuffmanCoding implements AutoCloseable {
+  /** executor: The threads which compress the Files.
+   *  io: The threads which complete the asynchronous reads and writes, which are separate from the threads which compress, so a completed read or write never waits for a compression to finish.
+   */
+  private final ExecutorService executor, io;
+  /** The amount of threads which complete the asynchronous reads and writes. */
+  private static final int IO_THREADS = 2;
+  private final int blockSize, limit;
+  /** running: The amount of compressions whose work has started and not yet ended.
+   *  pending: The compressions waiting for a running compression to end, once the limit is reached.
+   *  active: The compressions whose work has started and not yet ended.
+   *  closed: Whether close() was called.
+   */
+  private int running = 0;
+  private final ArrayDeque<Compression> pending = new ArrayDeque<Compression>();
+  private final HashSet<Compression> active = new HashSet<Compression>();
+  private boolean closed = false;
+
+  /** A constructor which initializes the facade with one thread per processor, and no more concurrent compressions than threads.
+   * @param blockSize The maximum amount of bytes within each Block, or 0 to compress each File as a singular Block.
+   */
+  public AsyncHuffmanCoding(int blockSize) {
+    this(Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().availableProcessors(), blockSize);
+  }
+
+  /** A constructor which initializes the facade with a fixed amount of threads, and a limit on the amount of concurrent compressions.
+   * @param threads The amount of threads which compress Files.
+   * @param limit The largest amount of Files compressed at once. Further Files wait until a compression finishes, without blocking the caller.
+   * @param blockSize The maximum amount of bytes within each Block, or 0 to compress each File as a singular Block.
+   */
+  public AsyncHuffmanCoding(int threads, int limit, int blockSize) {
+    this.executor = AsyncHuffmanCoding.pool(threads, "huffman-coding");
+    this.io = AsyncHuffmanCoding.pool(IO_THREADS, "huffman-io");
+    this.limit = limit;
+    this.blockSize = blockSize;
+  }
+
+  /** Creates a fixed pool of daemon threads. */
+  private static ExecutorService pool(int threads, String name) {
+    return Executors.newFixedThreadPool(threads, r -> {
+      Thread t = new Thread(r, name);
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+  /** A method which compresses a File asynchronously, writing the compressed File next to it with the .MZIP extension. Cancelling the returned future stops the compression at the next read, write or compression step, and deletes the partially written compressed File. A cancelled compression keeps its place within the limit until its current step ends.
+   * @param path The path of the File to be compressed.
+   * @return A future which completes with the Result of the compression, or exceptionally if the File could not be read or written, or the facade was closed.
+   */
+  public CompletableFuture<Result> compressAsync(Path path) {
+    Compression task = new Compression(path);
+    boolean now;
+
+    /** Starts the compression if the limit has not been reached, otherwise waits for a running compression to end. */
+    synchronized (this.pending) {
+      if (this.closed) {
+        task.result.completeExceptionally(new RejectedExecutionException("The facade was closed"));
+        return task.result;
+      }
+
+      now = (this.running < this.limit);
+
+      if (now) {
+        this.take(task);
+      } else {
+        this.pending.add(task);
+      }
+    }
+
+    /** A compression which is cancelled while waiting has not started any work, so it is simply removed. */
+    task.result.whenComplete((r, e) -> {
+      synchronized (this.pending) {
+        this.pending.remove(task);
+      }
+    });
+
+    if (now) {
+      this.start(task);
+    }
+
+    return task.result;
+  }
+
+  /** Gives a place within the limit to a compression. The caller must hold the lock of pending. */
+  private void take(Compression task) {
+    this.running++;
+    this.active.add(task);
+    task.started = true;
+  }
+
+  /** Starts the work of a compression, which ends it if the threads were shut down. */
+  private void start(Compression task) {
+    try {
+      this.executor.execute(() -> this.read(task));
+    } catch (RejectedExecutionException e) {
+      task.end(null, e);
+    }
+  }
+
+  /** Releases the place of a compression whose work has ended, and starts a waiting compression if there is one. */
+  private void release(Compression task) {
+    Compression next;
+
+    synchronized (this.pending) {
+      if (!this.active.remove(task)) {
+        return;
+      }
+
+      this.running--;
+      next = this.pending.poll();
+
+      if (next != null) {
+        this.take(next);
+      }
+    }
+
+    if (next != null) {
+      this.start(next);
+    }
+  }
+
+  /** Reads the whole File into a direct buffer, and compresses it once every byte has been read. */
+  private void read(Compression task) {
+    if (task.result.isDone()) {
+      task.end(null, null);
+      return;
+    }
+
+    try {
+      AsynchronousFileChannel input = AsynchronousFileChannel.open(task.path, EnumSet.of(StandardOpenOption.READ), this.io);
+      long length = input.size();
+
+      if (length > Integer.MAX_VALUE) {
+        input.close();
+        throw new IOException(String.format("File is too large to be compressed: %s", task.path));
+      }
+
+      ByteBuffer src = ByteBuffer.allocateDirect((int) length);
+      this.transfer(input, src, 0, true, task, () -> {
+        src.flip();
+
+        try {
+          this.executor.execute(() -> this.compress(task, src));
+        } catch (RejectedExecutionException e) {
+          task.end(null, e);
+        }
+      });
+    } catch (Exception e) {
+      task.end(null, e);
+    }
+  }
+
+  /** Compresses the bytes of the File into a direct buffer, and writes the compressed File. */
+  private void compress(Compression task, ByteBuffer src) {
+    if (task.result.isDone()) {
+      task.end(null, null);
+      return;
+    }
+
+    AsynchronousFileChannel output = null;
+
+    try {
+      long length = src.remaining();
+      byte[] name = String.format("%s\r\n", task.path.toString()).getBytes();
+      ByteBuffer dst = ByteBuffer.allocateDirect((int) Math.min(Integer.MAX_VALUE, name.length + HuffmanCoding.maxEncodedLength(length, this.blockSize)));
+      dst.put(name);
+      HuffmanCoding.encode(src, dst, this.blockSize);
+      dst.flip();
+
+      /** A compression cancelled while compressing stops before its compressed File is opened. */
+      if (task.result.isDone()) {
+        task.end(null, null);
+        return;
+      }
+
+      Path out = Paths.get(HuffmanCoding.compressedName(task.path.toString()));
+      task.output = out;
+      output = AsynchronousFileChannel.open(out, EnumSet.of(StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING), this.io);
+      long size = dst.remaining();
+      this.transfer(output, dst, 0, false, task, () -> task.end(new Result(task.path, out, length, size), null));
+    } catch (Exception e) {
+      if (output != null) {
+        AsyncHuffmanCoding.close(output);
+      }
+      task.end(null, e);
+    }
+  }
+
+  /** Reads or writes the remaining bytes of a buffer, issuing further asynchronous reads or writes until the buffer is full or empty, and closes the channel afterwards.
+   * @param channel The channel which is read or written.
+   * @param buffer The buffer which is filled or drained.
+   * @param position The position within the File of the next read or write.
+   * @param reading Whether the channel is read from, or written to.
+   * @param task The compression, which is ended if the read or write fails or the compression was cancelled.
+   * @param done The step which is run once every byte has been read or written.
+   */
+  private void transfer(AsynchronousFileChannel channel, ByteBuffer buffer, long position, boolean reading, Compression task, Runnable done) {
+    CompletionHandler<Integer, Void> handler = new CompletionHandler<Integer, Void>() {
+      @Override
+      public void completed(Integer count, Void attachment) {
+        /** A cancelled compression, or a read which reaches the end of the File early, stops here. */
+        if (task.result.isDone() || count < 0 || !buffer.hasRemaining()) {
+          AsyncHuffmanCoding.close(channel);
+
+          if (task.result.isDone()) {
+            task.end(null, null);
+          } else if (count < 0 && buffer.hasRemaining()) {
+            task.end(null, new IOException("File was truncated while being read"));
+          } else {
+            done.run();
+          }
+          return;
+        }
+
+        AsyncHuffmanCoding.this.transfer(channel, buffer, position + count, reading, task, done);
+      }
+
+      @Override
+      public void failed(Throwable e, Void attachment) {
+        AsyncHuffmanCoding.close(channel);
+        task.end(null, e);
+      }
+    };
+
+    try {
+      if (reading) {
+        channel.read(buffer, position, null, handler);
+      } else {
+        channel.write(buffer, position, null, handler);
+      }
+    } catch (RuntimeException e) {
+      AsyncHuffmanCoding.close(channel);
+      task.end(null, e);
+    }
+  }
+
+  /** Closes a channel, ignoring any failure since the result of the compression has already been decided. */
+  private static void close(AsynchronousFileChannel channel) {
+    try {
+      channel.close();
+    } catch (IOException e) {
+    }
+  }
+
+  /** Shuts down the threads of the facade. Compressions which are still running are abandoned, and their futures, along with the futures of waiting compressions, complete exceptionally. */
+  @Override
+  public void close() {
+    ArrayList<Compression> abandoned;
+
+    synchronized (this.pending) {
+      this.closed = true;
+      abandoned = new ArrayList<Compression>(this.active);
+      abandoned.addAll(this.pending);
+      this.pending.clear();
+    }
+
+    this.executor.shutdownNow();
+    this.io.shutdownNow();
+
+    for (Compression task : abandoned) {
+      task.end(null, new RejectedExecutionException("The facade was closed"));
+    }
+  }
+
+  /** A compression of a singular File, which ends exactly once: when its work succeeds, fails, or stops after it was cancelled. */
+  private class Compression {
+    private final Path path;
+    private final CompletableFuture<Result> result = new CompletableFuture<Result>();
+    /** output: The compressed File, once it has been opened.
+     *  started: Whether the compression holds a place within the limit.
+     */
+    private volatile Path output;
+    private volatile boolean started = false;
+    private final AtomicBoolean ended = new AtomicBoolean(false);
+
+    Compression(Path path) {
+      this.path = path;
+    }
+
+    /** Ends the compression: completes its future, deletes the compressed File unless the compression succeeded, and releases its place within the limit.
+     * @param success The Result of the compression, or null if it failed or was cancelled.
+     * @param failure The reason the compression failed, or null if it succeeded or was cancelled.
+     */
+    void end(Result success, Throwable failure) {
+      if (!this.ended.compareAndSet(false, true)) {
+        return;
+      }
+
+      boolean kept = (success != null && this.result.complete(success));
+
+      if (!kept) {
+        if (failure != null) {
+          this.result.completeExceptionally(failure);
+        }
+
+        if (this.output != null) {
+          try {
+            Files.deleteIfExists(this.output);
+          } catch (IOException e) {
+          }
+        }
+      }
+
+      if (this.started) {
+        AsyncHuffmanCoding.this.release(this);
+      }
+    }
+  }
+
+  /** The Result of an asynchronous compression. */
+  public static class Result {
+    private final Path input, output;
+    private final long inputSize, outputSize;
+
+    /** A constructor which initializes the Result of a compression.
+     * @param input The path of the File which was compressed.
+     * @param output The path of the compressed File.
+     * @param inputSize The amount of bytes within the File which was compressed.
+     * @param outputSize The amount of bytes within the compressed File.
+     */
+    public Result(Path input, Path output, long inputSize, long outputSize) {
+      this.input = input;
+      this.output = output;
+      this.inputSize = inputSize;
+      this.outputSize = outputSize;
+    }
+
+    /** A getter method which returns the path of the File which was compressed.
+     * @return The path of the File which was compressed.
+     */
+    public Path getInput() {
+      return this.input;
+    }
+
+    /** A getter method which returns the path of the compressed File.
+     * @return The path of the compressed File.
+     */
+    public Path getOutput() {
+      return this.output;
+    }
+
+    /** A getter method which returns the amount of bytes within the File which was compressed.
+     * @return The amount of bytes within the File which was compressed.
+     */
+    public long getInputSize() {
+      return this.inputSize;
+    }
+
+    /** A getter method which returns the amount of bytes within the compressed File.
+     * @return The amount of bytes within the compressed File.
+     */
+    public long getOutputSize() {
+      return this.outputSize;
+    }
+
+    /** Overrides the built-in toString() method to return a String representation of the Result.
+     * @return The String representation of the Result.
+     */
+    @Override
+    public String toString() {
+      return String.format("%s (%d bytes) -> %s (%d bytes)", this.input, this.inputSize, this.output, this.outputSize);
+    }
+  }
+}
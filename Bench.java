@@ -0,0 +1,110 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+/** A command line benchmark which compresses a corpus of Files at every compression level, and prints the ratio and throughput of each level. A level is on the Pareto curve if no other level is both at least as fast and at least as small, so the printed curve shows which levels are worth choosing.
+ * Usage: java Bench [-r repetitions] file or directory...
+ * @author Henry Wang
+ */
+public class Bench {
+  /** The benchmark only consists of its main method. */
+  private Bench() {
+  }
+
+  public static void main(String[] args) throws IOException {
+    int repetitions = 3, first = 0;
+
+    if (args.length >= 2 && args[0].equals("-r")) {
+      repetitions = Math.max(1, Integer.parseInt(args[1]));
+      first = 2;
+    }
+
+    if (args.length <= first) {
+      System.out.println("Usage: java Bench [-r repetitions] file or directory...");
+      return;
+    }
+
+    /** Every File is read once, so the benchmark does not measure reading the corpus. */
+    ArrayList<byte[]> corpus = new ArrayList<byte[]>();
+    long total = 0;
+
+    for (int i = first; i < args.length; i++) {
+      try (Stream<Path> paths = Files.walk(Paths.get(args[i]))) {
+        for (Path path : (Iterable<Path>) paths.filter(Files::isRegularFile).sorted()::iterator) {
+          byte[] bytes = Files.readAllBytes(path);
+          corpus.add(bytes);
+          total += bytes.length;
+        }
+      }
+    }
+
+    System.out.println(String.format("Corpus: %d files, %d bytes, best of %d repetitions", corpus.size(), total, repetitions));
+    System.out.println(String.format("%-6s %10s %8s %15s %17s %7s", "LEVEL", "SIZE", "RATIO", "COMPRESS MB/s", "DECOMPRESS MB/s", "PARETO"));
+
+    long[] sizes = new long[9];
+    double[] ratios = new double[9], compress = new double[9], decompress = new double[9];
+
+    for (int level = 1; level <= 9; level++) {
+      HuffmanCoding coding = new HuffmanCoding();
+      coding.setLevel(level);
+      long encodeTime = 0, decodeTime = 0;
+
+      for (byte[] bytes : corpus) {
+        ByteBuffer src = ByteBuffer.wrap(bytes), dst = ByteBuffer.allocate((int) coding.maxEncodedLength(bytes.length));
+        ByteBuffer decoded = ByteBuffer.allocate(bytes.length);
+        long bestEncode = Long.MAX_VALUE, bestDecode = Long.MAX_VALUE;
+
+        /** The first repetition is not measured, since it includes compiling the code of the level. */
+        for (int r = 0; r <= repetitions; r++) {
+          src.rewind();
+          dst.clear();
+          long start = System.nanoTime();
+          coding.encode(src, dst);
+          bestEncode = (r > 0 ? Math.min(bestEncode, System.nanoTime() - start) : bestEncode);
+        }
+
+        dst.flip();
+
+        for (int r = 0; r <= repetitions; r++) {
+          dst.rewind();
+          decoded.clear();
+          long start = System.nanoTime();
+          HuffmanCoding.decode(dst, decoded);
+          bestDecode = (r > 0 ? Math.min(bestDecode, System.nanoTime() - start) : bestDecode);
+        }
+
+        if (!Arrays.equals(bytes, decoded.array())) {
+          throw new IllegalStateException(String.format("Level %d did not decompress a File to its original bytes", level));
+        }
+
+        sizes[level - 1] += dst.limit();
+        encodeTime += bestEncode;
+        decodeTime += bestDecode;
+      }
+
+      ratios[level - 1] = (double) total / Math.max(sizes[level - 1], 1);
+      compress[level - 1] = total / 1e6 / Math.max(encodeTime / 1e9, 1e-9);
+      decompress[level - 1] = total / 1e6 / Math.max(decodeTime / 1e9, 1e-9);
+    }
+
+    for (int i = 0; i < 9; i++) {
+      System.out.println(String.format("%-6d %10d %8.3f %15.1f %17.1f %7s", i + 1, sizes[i], ratios[i], compress[i], decompress[i], Bench.pareto(i, ratios, compress) ? "*" : ""));
+    }
+  }
+
+  /** Checks whether a level is on the Pareto curve, meaning no other level compresses at least as fast to at least as small an output, and strictly better in one of the two. */
+  private static boolean pareto(int i, double[] ratios, double[] speeds) {
+    for (int j = 0; j < ratios.length; j++) {
+      if (j != i && ratios[j] >= ratios[i] && speeds[j] >= speeds[i] && (ratios[j] > ratios[i] || speeds[j] > speeds[i])) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+}
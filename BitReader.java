@@ -0,0 +1,109 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/** A Bit Reader which reads variable length bit sequences from bytes, reading the most significant bit of every byte first. This is the counterpart of the Bit Writer.
+ * Instead of reading one byte per bit, the bits are kept within a 64 bit register, which is refilled with 8 bytes at a time using ByteBuffer.getLong(). Since the bytes are read most significant bit first, a big endian long contains the bits in the same order they were written. Bits past the end of the buffer are read as 0, like the padding of the last byte.
+ * @author Henry Wang
+ */
+public class BitReader {
+  private final ByteBuffer src;
+  private final int limit;
+  /** window: The bits which were loaded but not yet read, starting from the most significant bit.
+   *  count: The amount of valid bits within window, which is at least 56 after a refill.
+   *  next: The index of the next byte to be loaded into window.
+   *  bit: The index of the next bit to be read, counted from the start of the buffer.
+   */
+  private long window = 0;
+  private int count = 0, next;
+  private long bit;
+
+  /** A constructor which initializes a Bit Reader starting at a byte within a buffer.
+   * @param src The buffer containing the bits, which may be a direct or memory mapped buffer.
+   * @param start The index of the byte containing the first bit.
+   */
+  public BitReader(ByteBuffer src, int start) {
+    this.src = src.duplicate().order(ByteOrder.BIG_ENDIAN);
+    this.limit = src.limit();
+    this.next = start;
+    this.bit = (long) start * 8;
+  }
+
+  /** Loads bytes into the register until it holds at least 56 valid bits. Whole longs are loaded while 8 bytes remain; bits of a partially loaded byte are loaded again by the next refill, which does not change them. */
+  public void refill() {
+    if (this.count > 56) {
+      return;
+    }
+
+    if (this.next + 8 <= this.limit) {
+      this.window |= this.src.getLong(this.next) >>> this.count;
+      int bytes = (63 - this.count) >>> 3;
+      this.next += bytes;
+      this.count += bytes << 3;
+    } else {
+      while (this.count <= 56) {
+        long b = (this.next < this.limit ? this.src.get(this.next) & 0xff : 0);
+        this.window |= b << (56 - this.count);
+        this.next++;
+        this.count += 8;
+      }
+    }
+  }
+
+  /** Returns the next bits without reading them. At least length bits must be loaded, which refill() guarantees for up to 56 bits.
+   * @param length The amount of bits, between 0 and 56.
+   * @return The bits, within the lowest bits.
+   */
+  public long peek(int length) {
+    /** Shifting by 1 first allows a length of 0 without a branch, since a long cannot be shifted by 64. */
+    return (this.window >>> 1) >>> (63 - length);
+  }
+
+  /** Reads bits which were loaded and returned by peek(), without a branch.
+   * @param length The amount of bits, at most the amount of loaded bits.
+   */
+  public void skip(int length) {
+    this.window <<= length;
+    this.count -= length;
+    this.bit += length;
+  }
+
+  /** Reads a singular bit.
+   * @return The bit, either 0 or 1.
+   */
+  public int read() {
+    this.refill();
+    int b = (int) (this.window >>> 63);
+    this.skip(1);
+    return b;
+  }
+
+  /** Reads a bit sequence, starting from its most significant bit.
+   * @param length The amount of bits to be read, between 0 and 64.
+   * @return The bit sequence, within the lowest bits.
+   */
+  public long read(int length) {
+    if (length > 56) {
+      long high = this.read(length - 32);
+      return (high << 32) | this.read(32);
+    }
+
+    this.refill();
+    long value = this.peek(length);
+    this.skip(length);
+    return value;
+  }
+
+  /** A getter method which returns the index of the next bit to be read, counted from the start of the buffer.
+   * @return The index of the next bit.
+   */
+  public long position() {
+    return this.bit;
+  }
+
+  /** A method which returns the index of the byte following the last bit which was read, which is where the next byte aligned data starts.
+   * @return The index of the next whole byte.
+   */
+  public int end() {
+    return (int) ((this.bit + 7) >>> 3);
+  }
+}
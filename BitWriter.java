@@ -0,0 +1,134 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/** A Bit Writer which packs variable length bit sequences into bytes, writing the most significant bit of every byte first. Bits are collected within a 64 bit buffer and written 4 bytes at a time, instead of checking for a whole byte after every bit sequence.
+ * @author Henry Wang
+ */
+public class BitWriter {
+  private byte[] bytes;
+  /** target: The buffer which receives the bytes, if the Bit Writer writes directly to a buffer instead of an array. */
+  private ByteBuffer target;
+  private boolean bigEndian = true;
+  private int size = 0, bits = 0;
+  /** buffer: The bits which have been written, but do not yet form 4 whole bytes. Only the lowest bits of the buffer are used. */
+  private long buffer = 0;
+
+  /** A constructor which initializes an empty Bit Writer. */
+  public BitWriter() {
+    this(16);
+  }
+
+  /** A constructor which initializes an empty Bit Writer with an initial capacity.
+   * @param capacity The initial amount of bytes which can be written before the Bit Writer grows.
+   */
+  public BitWriter(int capacity) {
+    this.bytes = new byte[Math.max(capacity, 1)];
+  }
+
+  /** A constructor which initializes a Bit Writer that writes directly to a buffer, starting from its position. The buffer may be a direct or memory mapped buffer, and does not grow.
+   * @param target The buffer which receives the bytes.
+   */
+  public BitWriter(ByteBuffer target) {
+    this.target = target;
+    this.bigEndian = (target.order() == ByteOrder.BIG_ENDIAN);
+  }
+
+  /** Writes the lowest bits of a code, starting from the most significant of those bits.
+   * @param code The code to be written.
+   * @param length The amount of bits of the code to be written, between 0 and 64.
+   */
+  public void write(long code, int length) {
+    /** The buffer can hold at most 31 pending bits, so codes longer than 32 bits are split in two to avoid overflowing the 64 bit buffer. */
+    if (length > 32) {
+      this.write(code >>> 32, length - 32);
+      this.write(code, 32);
+      return;
+    }
+
+    this.buffer = (this.buffer << length) | (code & ((1L << length) - 1));
+    this.bits += length;
+
+    if (this.bits >= 32) {
+      this.bits -= 32;
+      this.appendInt((int) (this.buffer >>> this.bits));
+      this.buffer &= (1L << this.bits) - 1;
+    }
+  }
+
+  /** Writes the pending bits which form whole bytes, leaving at most 7 pending bits. */
+  private void drain() {
+    while (this.bits >= 8) {
+      this.bits -= 8;
+      this.append((byte) (this.buffer >>> this.bits));
+    }
+
+    this.buffer &= (1L << this.bits) - 1;
+  }
+
+  /** Pads the pending bits with zeros until they form a whole byte, and writes that byte.
+   * @return The amount of padding bits which were written.
+   */
+  public int flush() {
+    this.drain();
+    int padding = (8 - this.bits) % 8;
+
+    if (this.bits > 0) {
+      this.append((byte) (this.buffer << padding));
+    }
+
+    this.buffer = 0;
+    this.bits = 0;
+    return padding;
+  }
+
+  /** Appends 4 bytes, starting from the most significant byte, growing the underlying array if required. */
+  private void appendInt(int value) {
+    if (this.target != null) {
+      this.target.putInt(this.bigEndian ? value : Integer.reverseBytes(value));
+      this.size += 4;
+      return;
+    }
+
+    if (this.size + 4 > this.bytes.length) {
+      this.bytes = Arrays.copyOf(this.bytes, Math.max(this.bytes.length * 2, this.size + 4));
+    }
+
+    this.bytes[this.size] = (byte) (value >>> 24);
+    this.bytes[this.size + 1] = (byte) (value >>> 16);
+    this.bytes[this.size + 2] = (byte) (value >>> 8);
+    this.bytes[this.size + 3] = (byte) value;
+    this.size += 4;
+  }
+
+  /** Appends a singular byte, growing the underlying array if required. */
+  private void append(byte b) {
+    if (this.target != null) {
+      this.target.put(b);
+      this.size++;
+      return;
+    }
+
+    if (this.size == this.bytes.length) {
+      this.bytes = Arrays.copyOf(this.bytes, this.bytes.length * 2);
+    }
+
+    this.bytes[this.size++] = b;
+  }
+
+  /** A getter method which returns the amount of whole bytes which have been written.
+   * @return The amount of whole bytes which have been written.
+   */
+  public int size() {
+    this.drain();
+    return this.size;
+  }
+
+  /** A method which returns a copy of the whole bytes which have been written. Pending bits are not included until flush() is called. A Bit Writer which writes to a buffer returns null.
+   * @return The bytes which have been written.
+   */
+  public byte[] toByteArray() {
+    this.drain();
+    return (this.bytes != null ? Arrays.copyOf(this.bytes, this.size) : null);
+  }
+}
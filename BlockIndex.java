@@ -0,0 +1,275 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/** A Block Index of a compressed File, which records where each Block starts within the compressed File and within the decompressed File. The index is written as an INDEX Block after the Blocks it describes, and ends with a fixed size trailer, so the latest index is found by reading the end of the compressed File instead of every header.
+ * Each index only records the Blocks written since the previous index, along with the position of the previous index, so appending Blocks to a compressed File only writes an index for the new Blocks. The header of an INDEX Block is "I 0 0 size previous", and its bytes consist of:
+ * 1. Two longs for each Block: the position of its header within the compressed File, and the position of its first byte within the decompressed File.
+ * 2. The trailer: the amount of decompressed bytes within every Block before the index, the position of the header of the index, and MAGIC.
+ * @author Henry Wang
+ */
+public class BlockIndex {
+  /** The last 8 bytes of a compressed File which ends with a Block Index. */
+  public static final long MAGIC = 0x4D5A4950494E4458L;
+  /** The amount of bytes within the trailer of a Block Index. */
+  public static final int TRAILER = 24;
+  /** offsets, positions: The position of the header of each Block within the compressed File, and of its first byte within the decompressed File.
+   *  previous: The position of the header of the previous index, or -1 if there is none.
+   *  length: The amount of decompressed bytes within every Block recorded so far, including the Blocks of previous indices.
+   *  end: The position following the last Block, where the next Block or the index itself is written.
+   */
+  private long[] offsets = new long[16], positions = new long[16];
+  private int count = 0;
+  private long previous, length, end;
+
+  /** A constructor which initializes an empty Block Index.
+   * @param previous The position of the header of the previous index, or -1 if there is none.
+   * @param length The amount of decompressed bytes within every Block before this index.
+   * @param end The position following the last Block before this index.
+   */
+  public BlockIndex(long previous, long length, long end) {
+    this.previous = previous;
+    this.length = length;
+    this.end = end;
+  }
+
+  /** A method which prepares to append Blocks to a compressed File. If the compressed File ends with a valid trailer, only the trailer and the header of the latest index are read. Otherwise, such as for a File written without an index or a File whose previous append was interrupted, the header of every Block is read, and the index records every Block after the latest complete index.
+   * @param channel The compressed File, starting with the name of the original File.
+   * @return An empty Block Index positioned after the last complete Block, which may be before an incomplete Block that should be discarded.
+   * @throws IOException If the compressed File could not be read.
+   */
+  public static BlockIndex open(FileChannel channel) throws IOException {
+    BlockIndex latest = BlockIndex.latest(channel);
+    return (latest != null ? latest : BlockIndex.scan(channel, false));
+  }
+
+  /** A method which reads every Block recorded by the chain of indices ending at the trailer of a compressed File, starting from the first index. If the compressed File does not end with a valid trailer, the header of every Block is read instead.
+   * @param channel The compressed File, starting with the name of the original File.
+   * @return The Block Index recording every complete Block of the compressed File, in order.
+   * @throws IOException If the compressed File could not be read.
+   */
+  public static BlockIndex load(FileChannel channel) throws IOException {
+    BlockIndex latest = BlockIndex.latest(channel);
+    if (latest == null) {
+      return BlockIndex.scan(channel, true);
+    }
+
+    /** The indices are linked from the latest to the first, so their records are collected first and then added in order. */
+    ArrayList<ByteBuffer> records = new ArrayList<ByteBuffer>();
+    long offset = latest.previous;
+    while (offset >= 0) {
+      String line = BlockIndex.readLine(channel, offset);
+      String[] header = line.trim().split(" ", 5);
+      int size = Integer.parseInt(header[3]);
+
+      records.add(BlockIndex.read(channel, offset + line.length(), size - TRAILER));
+      offset = Long.parseLong(header[4]);
+    }
+
+    BlockIndex index = new BlockIndex(-1, latest.length, latest.previous);
+    for (int i = records.size() - 1; i >= 0; i--) {
+      ByteBuffer record = records.get(i);
+
+      while (record.hasRemaining()) {
+        index.record(record.getLong(), record.getLong());
+      }
+    }
+
+    return index;
+  }
+
+  /** Reads the trailer at the end of a compressed File, and returns an empty Block Index following it, or null if the compressed File does not end with a valid trailer. */
+  private static BlockIndex latest(FileChannel channel) throws IOException {
+    long size = channel.size();
+    if (size < TRAILER) {
+      return null;
+    }
+
+    ByteBuffer trailer = BlockIndex.read(channel, size - TRAILER, TRAILER);
+    long length = trailer.getLong(), offset = trailer.getLong();
+
+    if (trailer.getLong() != MAGIC || offset < 0 || offset >= size) {
+      return null;
+    }
+
+    /** The trailer is only trusted if it belongs to an INDEX Block which ends exactly at the end of the File. */
+    String line = BlockIndex.readLine(channel, offset);
+    String[] header = line.trim().split(" ", 5);
+
+    try {
+      if (header.length < 5 || !header[0].equals(String.valueOf(HuffmanBlock.INDEX)) || offset + line.length() + Long.parseLong(header[3]) != size) {
+        return null;
+      }
+    } catch (NumberFormatException e) {
+      return null;
+    }
+
+    return new BlockIndex(offset, length, size);
+  }
+
+  /** Reads the header of every Block, stopping at the first incomplete Block, and records every Block after the latest index, or every Block if all is true. */
+  private static BlockIndex scan(FileChannel channel, boolean all) throws IOException {
+    long size = channel.size(), position = BlockIndex.readLine(channel, 0).length();
+    BlockIndex index = new BlockIndex(-1, 0, position);
+
+    while (position < size) {
+      String line = BlockIndex.readLine(channel, position);
+      String[] header = line.trim().split(" ", 5);
+
+      if (!line.endsWith("\n") || header.length < 5) {
+        break;
+      }
+
+      long next;
+      int length;
+      try {
+        next = position + line.length() + Long.parseLong(header[3]);
+        length = Integer.parseInt(header[1]);
+      } catch (NumberFormatException e) {
+        break;
+      }
+
+      if (next > size || header[0].length() != 1) {
+        break;
+      }
+
+      if (header[0].charAt(0) == HuffmanBlock.INDEX) {
+        if (!all) {
+          index = new BlockIndex(position, index.length, next);
+        }
+      } else {
+        index.add(position, length);
+        index.end = next;
+      }
+
+      position = next;
+    }
+
+    return index;
+  }
+
+  /** A method which records a Block written at the end of the compressed File.
+   * @param offset The position of the header of the Block within the compressed File.
+   * @param length The amount of decompressed bytes within the Block.
+   */
+  public void add(long offset, int length) {
+    this.record(offset, this.length);
+    this.length += length;
+  }
+
+  /** Records a Block, growing the arrays if they are full. */
+  private void record(long offset, long position) {
+    if (this.count == this.offsets.length) {
+      this.offsets = Arrays.copyOf(this.offsets, this.count * 2);
+      this.positions = Arrays.copyOf(this.positions, this.count * 2);
+    }
+
+    this.offsets[this.count] = offset;
+    this.positions[this.count++] = position;
+  }
+
+  /** A method which moves the position following the last Block, after a Block was written.
+   * @param end The position following the last Block.
+   */
+  public void setEnd(long end) {
+    this.end = end;
+  }
+
+  /** A method which returns the INDEX Block, consisting of its header, the recorded Blocks and the trailer, which is written at the position following the last Block.
+   * @return The buffer containing the INDEX Block, positioned at its first byte.
+   */
+  public ByteBuffer toBuffer() {
+    int size = this.count * 16 + TRAILER;
+    byte[] header = String.format("%c %d %d %d %d\r\n", HuffmanBlock.INDEX, 0, 0, size, this.previous).getBytes();
+    ByteBuffer buffer = ByteBuffer.allocate(header.length + size);
+
+    buffer.put(header);
+    for (int i = 0; i < this.count; i++) {
+      buffer.putLong(this.offsets[i]).putLong(this.positions[i]);
+    }
+
+    buffer.putLong(this.length).putLong(this.end).putLong(MAGIC);
+    return buffer.flip();
+  }
+
+  /** Reads an exact amount of bytes at a position within a File. */
+  static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("Unexpected end of file");
+      }
+    }
+
+    return buffer.flip();
+  }
+
+  /** Reads a line starting at a position within a File, including its line break unless the File ends first. Each byte is read as one char, so the length of the line is its amount of bytes. */
+  static String readLine(FileChannel channel, long position) throws IOException {
+    StringBuilder line = new StringBuilder();
+    ByteBuffer buffer = ByteBuffer.allocate(256);
+
+    while (channel.read(buffer.clear(), position) > 0) {
+      buffer.flip();
+      position += buffer.limit();
+
+      while (buffer.hasRemaining()) {
+        char c = (char) (buffer.get() & 0xff);
+        line.append(c);
+
+        if (c == '\n') {
+          return line.toString();
+        }
+      }
+    }
+
+    return line.toString();
+  }
+
+  /** A getter method which returns the amount of Blocks recorded by this index, excluding the Blocks of previous indices.
+   * @return The amount of Blocks.
+   */
+  public int getCount() {
+    return this.count;
+  }
+
+  /** A getter method which returns the position of the header of a recorded Block within the compressed File.
+   * @param i The index of the Block within this index.
+   * @return The position of the header of the Block.
+   */
+  public long getOffset(int i) {
+    return this.offsets[i];
+  }
+
+  /** A getter method which returns the position of the first byte of a recorded Block within the decompressed File.
+   * @param i The index of the Block within this index.
+   * @return The position of the first decompressed byte of the Block.
+   */
+  public long getPosition(int i) {
+    return this.positions[i];
+  }
+
+  /** A getter method which returns the position of the header of the previous index.
+   * @return The position of the previous index, or -1 if there is none.
+   */
+  public long getPrevious() {
+    return this.previous;
+  }
+
+  /** A getter method which returns the amount of decompressed bytes within every Block recorded so far, which is the amount of bytes of the original File which were already compressed.
+   * @return The amount of decompressed bytes.
+   */
+  public long getLength() {
+    return this.length;
+  }
+
+  /** A getter method which returns the position following the last Block, where the next Block is written.
+   * @return The position following the last Block.
+   */
+  public long getEnd() {
+    return this.end;
+  }
+}
@@ -0,0 +1,175 @@
+import java.nio.ByteBuffer;
+
+/** A Burrows-Wheeler Transform, which rearranges the bytes of a Block so that bytes followed by the same context are grouped together, in the same way as bzip2. Text contains many repeated contexts, so the transformed bytes consist of long runs of few distinct bytes, which are then compressed in three stages:
+ * 1. Move-To-Front: Each byte is replaced by its index within a list of bytes, after which it is moved to the front of the list, so recently used bytes have small indices.
+ * 2. Run Length Encoding: Runs of index 0 are replaced by their length, written in bijective base 2 using the digits RUN_A (1) and RUN_B (2).
+ * 3. The remaining symbols, ending with END, are compressed using a Huffman Binary Tree.
+ * The transform is computed from the Suffix Array of the Block, so it requires linear time. Each transform only uses the bytes of its own Block, so Blocks can be transformed in parallel, with one Burrows-Wheeler Transform per thread.
+ * @author Henry Wang
+ */
+public class BurrowsWheeler {
+  /** The symbols written after the transform: RUN_A and RUN_B are the digits of the length of a run of index 0, each index i from 1 to 255 is written as i + 1, and END ends the Block. */
+  public static final int RUN_A = 0, RUN_B = 1, END = 257, SYMBOLS = 258;
+  /** symbols: The symbols written by the latest call to transform().
+   *  primary: The index of the row of the transform which contains the original bytes, which is required to reverse the transform.
+   */
+  private int[] symbols = new int[0];
+  private int count = 0, primary = 0;
+
+  /** A method which transforms a range of bytes, replacing the symbols of the previous call.
+   * @param data The buffer containing the bytes, which may be a direct or memory mapped buffer.
+   * @param offset The index of the first byte.
+   * @param length The amount of bytes.
+   * @return The amount of symbols, including END.
+   */
+  public int transform(ByteBuffer data, int offset, int length) {
+    /** Every byte is shifted by 1, so that a sentinel of 0, which is smaller than every byte, ends the sequence. */
+    int[] s = new int[length + 1];
+    for (int i = 0; i < length; i++) {
+      s[i] = (data.get(offset + i) & 0xff) + 1;
+    }
+
+    int[] sa = SuffixArray.build(s, length + 1, 257);
+
+    if (this.symbols.length < length + 1) {
+      this.symbols = new int[length + 1];
+    }
+
+    /** The transform consists of the byte preceding each sorted suffix. The suffix starting at 0 is preceded by the sentinel, which is not written; its row is the primary index instead. */
+    byte[] list = new byte[256];
+    for (int i = 0; i < 256; i++) {
+      list[i] = (byte) i;
+    }
+
+    this.count = 0;
+    int run = 0;
+
+    for (int i = 0; i <= length; i++) {
+      if (sa[i] == 0) {
+        this.primary = i;
+        continue;
+      }
+
+      byte b = (byte) (s[sa[i] - 1] - 1);
+      int index = 0;
+
+      /** Moves the byte to the front of the list, shifting the bytes before it. */
+      if (list[0] != b) {
+        byte moved = list[0];
+        index = 1;
+
+        while (list[index] != b) {
+          byte next = list[index];
+          list[index++] = moved;
+          moved = next;
+        }
+
+        list[index] = moved;
+        list[0] = b;
+      }
+
+      if (index == 0) {
+        run++;
+      } else {
+        this.run(run);
+        run = 0;
+        this.symbols[this.count++] = index + 1;
+      }
+    }
+
+    this.run(run);
+    this.symbols[this.count++] = END;
+    return this.count;
+  }
+
+  /** Writes the length of a run of index 0 in bijective base 2, starting from the least significant digit. */
+  private void run(int run) {
+    while (run > 0) {
+      run--;
+      this.symbols[this.count++] = ((run & 1) == 0 ? RUN_A : RUN_B);
+      run >>= 1;
+    }
+  }
+
+  /** A getter method which returns a symbol written by the latest call to transform().
+   * @param index The index of the symbol.
+   * @return The symbol.
+   */
+  public int getSymbol(int index) {
+    return this.symbols[index];
+  }
+
+  /** A getter method which returns the primary index of the latest call to transform().
+   * @return The index of the row containing the original bytes.
+   */
+  public int getPrimary() {
+    return this.primary;
+  }
+
+  /** A method which reverses the transform, reading symbols from a Huffman Coding and writing the original bytes to a buffer.
+   * @param table The Code Table used to compress the symbols.
+   * @param in The Bit Reader positioned at the first symbol, which is advanced past END.
+   * @param primary The primary index of the transform.
+   * @param dst The buffer which receives the original bytes, which is advanced by length bytes.
+   * @param length The amount of original bytes.
+   */
+  public static void inverse(IntHuffmanCodeTable table, BitReader in, int primary, ByteBuffer dst, int length) {
+    byte[] last = new byte[length], list = new byte[256];
+    for (int i = 0; i < 256; i++) {
+      list[i] = (byte) i;
+    }
+
+    /** Reverses the Run Length Encoding and Move-To-Front stages, which restores the transformed bytes. */
+    int n = 0, run = 0, digit = 1;
+
+    for (int symbol = table.decode(in); ; symbol = table.decode(in)) {
+      if (symbol == RUN_A || symbol == RUN_B) {
+        run += (symbol + 1) * digit;
+        digit <<= 1;
+        continue;
+      }
+
+      while (run-- > 0) {
+        last[n++] = list[0];
+      }
+      run = 0;
+      digit = 1;
+
+      if (symbol == END) {
+        break;
+      }
+
+      int index = symbol - 1;
+      byte b = list[index];
+      System.arraycopy(list, 0, list, 1, index);
+      list[0] = b;
+      last[n++] = b;
+    }
+
+    /** Every row of the transform is a rotation of the bytes, so the row preceding each row is found by counting the bytes (LF mapping). Row 0 starts with the sentinel, and the bytes are restored from last to first. */
+    int[] start = new int[257], lf = new int[length + 1];
+    for (int i = 0; i < length; i++) {
+      start[(last[i] & 0xff) + 1]++;
+    }
+
+    start[0] = 1;
+    for (int c = 1; c <= 256; c++) {
+      start[c] += start[c - 1];
+    }
+
+    for (int row = 0, i = 0; row <= length; row++) {
+      if (row != primary) {
+        lf[row] = start[last[i++] & 0xff]++;
+      }
+    }
+
+    int base = dst.position();
+
+    for (int k = length - 1, row = 0; k >= 0; k--) {
+      dst.put(base + k, last[row < primary ? row : row - 1]);
+      row = lf[row];
+    }
+
+    dst.position(base + length);
+  }
+}
@@ -0,0 +1,349 @@
+import java.util.Arrays;
+
+/** A compact Huffman Binary Tree of bytes, which stores its Nodes within parallel primitive arrays instead of one Huffman Node object per Node. A Tree with 256 leaves has 511 Nodes, so it takes about 2 KB instead of a Huffman Node, a boxed Byte and a String per Node, which matters when many Trees are kept at the same time.
+ * The Nodes are numbered in preorder, so the root is Node 0 and every Node has a larger index than its parent. The length of the bit sequence of every byte is computed while the Tree is built, without building a String per Node. A Huffman Binary Tree with the usual Huffman Node API can still be obtained using toTree().
+ * @author Henry Wang
+ */
+public final class CompactHuffmanTree {
+  /** left, right: The children of each Node, where a leaf has no left child (-1). The right child of a Node is taken for a 1 bit, and the left child for a 0 bit.
+   *  symbol: The byte of each leaf.
+   *  lengths: The length of the bit sequence of each byte, indexed by byte + 128, or 0 if the byte is not within the Tree.
+   */
+  private final short[] left, right;
+  private final byte[] symbol;
+  private final byte[] lengths = new byte[257];
+  private int nodes = 0;
+
+  /** Allocates a Tree with room for an amount of Nodes. */
+  private CompactHuffmanTree(int capacity) {
+    this.left = new short[capacity];
+    this.right = new short[capacity];
+    this.symbol = new byte[capacity];
+  }
+
+  /** A method which builds the Huffman Binary Tree of a frequency table of bytes. The two least frequent Trees are merged until one Tree remains, where the least frequent Tree becomes the right child, and Trees of equal frequency are merged in the order they were created. This builds the same Tree as merging Huffman Trees within a Priority Queue, without allocating an object per Node.
+   * @param frequencies The frequency table of bytes, indexed by byte + 128.
+   * @return The Huffman Binary Tree, or null if the frequency table is null or empty.
+   */
+  public static CompactHuffmanTree fromFrequencies(int[] frequencies) {
+    if (frequencies == null) {
+      return null;
+    }
+
+    /** The Trees are kept within a binary heap ordered by frequency, and then by the order they were created. Leaves are Nodes [0, n), and merged Nodes follow them. */
+    int n = 0;
+    for (int f : frequencies) {
+      n += (f > 0 ? 1 : 0);
+    }
+
+    if (n == 0) {
+      return null;
+    }
+
+    int[] children = new int[2 * n], heap = new int[n];
+    long[] priority = new long[2 * n];
+    byte[] values = new byte[n];
+    int size = 0, created = 0;
+
+    for (int i = 0; i < frequencies.length; i++) {
+      if (frequencies[i] > 0) {
+        values[created] = (byte) (i - 128);
+        priority[created] = frequencies[i];
+        size = CompactHuffmanTree.push(heap, size, priority, created++);
+      }
+    }
+
+    while (size > 1) {
+      int f = heap[0];
+      size = CompactHuffmanTree.pop(heap, size, priority);
+      int s = heap[0];
+      size = CompactHuffmanTree.pop(heap, size, priority);
+
+      /** children[2 * (node - n)] is the left child of a merged Node, and the next entry is its right child. */
+      children[2 * (created - n)] = s;
+      children[2 * (created - n) + 1] = f;
+      priority[created] = priority[f] + priority[s];
+      size = CompactHuffmanTree.push(heap, size, priority, created++);
+    }
+
+    CompactHuffmanTree tree = new CompactHuffmanTree(2 * n - 1);
+    tree.number(heap[0], n, children, values, 0);
+
+    /** A Tree consisting of a singular leaf still requires one bit per byte. */
+    if (n == 1) {
+      tree.lengths[tree.symbol[0] + 128] = 1;
+    }
+
+    return tree;
+  }
+
+  /** A method which builds the canonical Huffman Binary Tree of the lengths of the bit sequences of each byte, where the bit sequences of each length are consecutive, and are assigned in increasing order of bytes.
+   * @param lengths The length of the bit sequence of each byte, indexed by byte + 128, or 0 if the byte is not within the Tree. The lengths must describe a complete Tree (the sum of 2^-length is 1).
+   * @return The Huffman Binary Tree, or null if every length is 0.
+   * @throws IllegalArgumentException If the lengths do not describe a complete Tree.
+   */
+  public static CompactHuffmanTree fromLengths(int[] lengths) {
+    int n = 0, longest = 0;
+    for (int i = 0; i < 256; i++) {
+      n += (lengths[i] > 0 ? 1 : 0);
+      longest = Math.max(longest, lengths[i]);
+    }
+
+    if (n == 0) {
+      return null;
+    }
+
+    /** A complete Tree, where every internal Node has two children, is required by decode(). A singular byte is a leaf without an internal Node. */
+    long kraft = 0;
+    for (int i = 0; i < 256; i++) {
+      kraft += (lengths[i] > 0 ? 1L << (longest - lengths[i]) : 0);
+    }
+
+    if (n > 1 && kraft != 1L << longest) {
+      throw new IllegalArgumentException("The lengths do not describe a complete Huffman Binary Tree");
+    }
+
+    /** Leaves are Nodes [0, n) in increasing order of bytes, and the internal Nodes follow them in the order they are created by inserting each bit sequence, starting from the root. */
+    int[] children = new int[2 * n];
+    byte[] values = new byte[n];
+    Arrays.fill(children, -1);
+    int created = n + 1;
+    long code = 0;
+
+    for (int length = 1, leaf = 0; length <= longest; length++, code <<= 1) {
+      for (int i = 0; i < 256; i++) {
+        if (lengths[i] != length) {
+          continue;
+        }
+
+        int node = n;
+        for (int bit = length - 1; bit > 0; bit--) {
+          int child = 2 * (node - n) + (int) ((code >>> bit) & 1);
+          if (children[child] < 0) {
+            children[child] = created++;
+          }
+          node = children[child];
+        }
+
+        values[leaf] = (byte) (i - 128);
+        children[2 * (node - n) + (int) (code & 1)] = leaf++;
+        code++;
+      }
+    }
+
+    CompactHuffmanTree tree = new CompactHuffmanTree(2 * n - 1);
+    tree.number(n == 1 ? 0 : n, n, children, values, 0);
+
+    if (n == 1) {
+      tree.lengths[tree.symbol[0] + 128] = 1;
+    }
+
+    return tree;
+  }
+
+  /** Adds a Tree to the heap, and returns the new size of the heap. */
+  private static int push(int[] heap, int size, long[] priority, int node) {
+    int i = size;
+
+    while (i > 0 && CompactHuffmanTree.before(node, heap[(i - 1) / 2], priority)) {
+      heap[i] = heap[(i - 1) / 2];
+      i = (i - 1) / 2;
+    }
+
+    heap[i] = node;
+    return size + 1;
+  }
+
+  /** Removes the first Tree of the heap, and returns the new size of the heap. */
+  private static int pop(int[] heap, int size, long[] priority) {
+    int node = heap[--size], i = 0;
+
+    while (2 * i + 1 < size) {
+      int child = 2 * i + 1;
+      if (child + 1 < size && CompactHuffmanTree.before(heap[child + 1], heap[child], priority)) {
+        child++;
+      }
+
+      if (!CompactHuffmanTree.before(heap[child], node, priority)) {
+        break;
+      }
+
+      heap[i] = heap[child];
+      i = child;
+    }
+
+    heap[i] = node;
+    return size;
+  }
+
+  /** Checks whether a Tree is merged before another Tree. Nodes are numbered in the order they were created, so ties are broken by the Node index. */
+  private static boolean before(int a, int b, long[] priority) {
+    return (priority[a] < priority[b] || (priority[a] == priority[b] && a < b));
+  }
+
+  /** Recursively copies a Node and its children from the merged Nodes in preorder, and records the length of the bit sequence of each leaf.
+   * @return The preorder index of the Node.
+   */
+  private int number(int node, int n, int[] children, byte[] values, int depth) {
+    int index = this.nodes++;
+
+    if (node < n) {
+      this.left[index] = this.right[index] = -1;
+      this.symbol[index] = values[node];
+      this.lengths[values[node] + 128] = (byte) depth;
+    } else {
+      this.left[index] = (short) this.number(children[2 * (node - n)], n, children, values, depth + 1);
+      this.right[index] = (short) this.number(children[2 * (node - n) + 1], n, children, values, depth + 1);
+    }
+
+    return index;
+  }
+
+  /** A method which builds a Huffman Binary Tree from its bracket representation, as written within the header of a Block.
+   * @param bracket The bracket representation, where an internal Node is written as "(left right)" and a leaf as its byte within the range [0, 255].
+   * @return The Huffman Binary Tree.
+   * @throws IllegalArgumentException If an internal Node does not have two children.
+   */
+  public static CompactHuffmanTree parse(String bracket) {
+    /** A Tree with n leaves has n - 1 internal Nodes, each written with one opening bracket. */
+    int internal = 0;
+    for (int i = 0; i < bracket.length(); i++) {
+      internal += (bracket.charAt(i) == '(' ? 1 : 0);
+    }
+
+    CompactHuffmanTree tree = new CompactHuffmanTree(2 * internal + 1);
+    tree.parse(bracket, new int[] {0}, 0);
+
+    if (internal == 0) {
+      tree.lengths[tree.symbol[0] + 128] = 1;
+    }
+
+    return tree;
+  }
+
+  /** Recursively parses a Node starting at index[0], which is advanced past the Node.
+   * @return The preorder index of the Node.
+   */
+  private int parse(String bracket, int[] index, int depth) {
+    int node = this.nodes++;
+
+    if (bracket.charAt(index[0]) == '(') {
+      index[0]++;
+      this.left[node] = (short) this.parse(bracket, index, depth + 1);
+
+      if (bracket.charAt(index[0]) != ' ') {
+        throw new IllegalArgumentException("Every internal Node of a Huffman Binary Tree must have two children");
+      }
+
+      index[0]++;
+      this.right[node] = (short) this.parse(bracket, index, depth + 1);
+      index[0]++;
+      return node;
+    }
+
+    int start = index[0];
+    while (index[0] < bracket.length() && Character.isDigit(bracket.charAt(index[0]))) {
+      index[0]++;
+    }
+
+    this.left[node] = this.right[node] = -1;
+    this.symbol[node] = (byte) Integer.parseInt(bracket.substring(start, index[0]));
+    this.lengths[this.symbol[node] + 128] = (byte) depth;
+    return node;
+  }
+
+  /** A getter method which returns the amount of Nodes within the Tree.
+   * @return The amount of Nodes, which is one less than twice the amount of leaves.
+   */
+  public int size() {
+    return this.nodes;
+  }
+
+  /** A getter method which returns the left child of a Node.
+   * @param node The index of the Node.
+   * @return The index of the left child, or -1 if the Node is a leaf.
+   */
+  public int getLeft(int node) {
+    return this.left[node];
+  }
+
+  /** A getter method which returns the right child of a Node.
+   * @param node The index of the Node.
+   * @return The index of the right child, or -1 if the Node is a leaf.
+   */
+  public int getRight(int node) {
+    return this.right[node];
+  }
+
+  /** A method which checks whether a Node is a leaf.
+   * @param node The index of the Node.
+   * @return Whether the Node is a leaf.
+   */
+  public boolean isLeaf(int node) {
+    return (this.left[node] < 0);
+  }
+
+  /** A getter method which returns the byte of a leaf.
+   * @param node The index of the leaf.
+   * @return The byte of the leaf.
+   */
+  public byte getSymbol(int node) {
+    return this.symbol[node];
+  }
+
+  /** A getter method which returns the length of the bit sequence of a byte, which is the depth of its leaf.
+   * @param b The byte.
+   * @return The length of the bit sequence, or 0 if the byte is not within the Tree.
+   */
+  public int getLength(byte b) {
+    return this.lengths[b + 128];
+  }
+
+  /** A method which builds a Huffman Binary Tree of Huffman Nodes equivalent to this Tree, with the depth and bit sequence of each Node initialized, for callers which use the Huffman Tree API. Changing the Huffman Tree does not change this Tree.
+   * @return The Huffman Binary Tree.
+   */
+  public HuffmanTree<Byte> toTree() {
+    HuffmanTree<Byte> tree = new HuffmanTree<Byte>();
+    tree.setRoot(this.toNode(0));
+
+    if (tree.getRoot().isLeaf()) {
+      tree.getRoot().setSequence("0");
+    } else {
+      tree.setInfo();
+    }
+
+    return tree;
+  }
+
+  /** Recursively builds the Huffman Node of a Node and its children. */
+  private HuffmanNode<Byte> toNode(int node) {
+    if (this.isLeaf(node)) {
+      return new HuffmanNode<Byte>(this.symbol[node]);
+    }
+
+    return new HuffmanNode<Byte>((byte) 0, this.toNode(this.left[node]), this.toNode(this.right[node]));
+  }
+
+  /** A method that returns the bracket representation of the Tree, as written within the header of a Block.
+   * @return The bracket representation of the Tree.
+   */
+  @Override
+  public String toString() {
+    StringBuilder bracket = new StringBuilder(this.nodes * 3);
+    this.bracket(0, bracket);
+    return bracket.toString();
+  }
+
+  /** Recursively appends the bracket representation of a Node. */
+  private void bracket(int node, StringBuilder bracket) {
+    if (this.isLeaf(node)) {
+      bracket.append(this.symbol[node] & 0xff);
+    } else {
+      bracket.append('(');
+      this.bracket(this.left[node], bracket);
+      bracket.append(' ');
+      this.bracket(this.right[node], bracket);
+      bracket.append(')');
+    }
+  }
+}
@@ -0,0 +1,363 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/** A DEFLATE (RFC 1951) and gzip (RFC 1952) writer, whose output can be read by any standard tool, such as zcat, browsers or java.util.zip, without the decoder of this project. The bytes are split into chunks, and each chunk is written as either:
+ * 1. A dynamic Huffman block: The Match Finder replaces repeated sequences with lengths and distances, and the literal and length symbols and the distance symbols are compressed using two Huffman Binary Trees whose bit sequences are limited to 15 bits. The lengths of the bit sequences are themselves compressed using a third Huffman Binary Tree limited to 7 bits.
+ * 2. Stored blocks: The bytes are copied as is, if that is smaller than the dynamic Huffman block.
+ * Unlike the .MZIP format, DEFLATE writes the least significant bit of every byte first, and writes the bit sequences of Huffman Binary Trees in reverse.
+ * @author Henry Wang
+ */
+public class DeflateCoding {
+  /** The amount of bytes within each chunk, and the largest amount of bytes within a stored block. */
+  private static final int CHUNK = 1 << 17, STORED = 65535;
+  /** The order in which the lengths of the bit sequences of the code length symbols are written. */
+  private static final int[] ORDER = {16, 17, 18, 0, 8, 7, 9, 6, 10, 5, 11, 4, 12, 3, 13, 2, 14, 1, 15};
+
+  /** Bytes are compressed without any state besides the Match Finder, so the class only consists of static methods. */
+  private DeflateCoding() {
+  }
+
+  /** A method which compresses a File into a gzip File, named by adding .gz as a suffix. The File is memory mapped, and the gzip stream is compressed into a direct buffer, of which only the written bytes are written to the gzip File.
+   * @param fn The file name of the File to be compressed.
+   * @param matcher The Match Finder used to find repeated sequences of bytes, or null to only use Huffman Coding.
+   * @return The file name of the gzip File, or an empty String if the File could not be compressed.
+   * @throws IllegalStateException If the File or its gzip stream would be larger than a singular buffer, in which case no gzip File is written.
+   */
+  public static String compressFile(String fn, MatchFinder matcher) {
+    String gz = fn + ".gz";
+
+    try (FileChannel input = FileChannel.open(Paths.get(fn), StandardOpenOption.READ)) {
+      /** A buffer holds at most 2 GB, so the size is checked before the gzip File is opened, which would otherwise be left truncated. */
+      long size = DeflateCoding.maxEncodedLength(input.size());
+      if (size > Integer.MAX_VALUE) {
+        throw new IllegalStateException(String.format("%s is too large to be compressed into a gzip File", fn));
+      }
+
+      ByteBuffer src = input.map(FileChannel.MapMode.READ_ONLY, 0, input.size());
+      ByteBuffer dst = ByteBuffer.allocateDirect((int) size);
+      DeflateCoding.gzip(src, dst, matcher);
+      dst.flip();
+
+      /** Only the bytes of the gzip stream are written, so the gzip File is never extended to the upper bound and then truncated. */
+      try (FileChannel output = FileChannel.open(Paths.get(gz), StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        while (dst.hasRemaining()) {
+          output.write(dst);
+        }
+      }
+
+      return gz;
+    } catch (IOException e) {
+      System.out.println(String.format("Could not compress file: %s", fn));
+    }
+
+    return "";
+  }
+
+  /** A method which compresses the remaining bytes of a buffer into a gzip stream, consisting of a header, a DEFLATE stream, and the CRC-32 and length of the bytes.
+   * @param src The buffer containing the bytes to be compressed, which is advanced to its limit.
+   * @param dst The buffer which receives the gzip stream, which must have at least maxEncodedLength() bytes remaining.
+   * @param matcher The Match Finder used to find repeated sequences of bytes, or null to only use Huffman Coding.
+   */
+  public static void gzip(ByteBuffer src, ByteBuffer dst, MatchFinder matcher) {
+    CRC32 crc = new CRC32();
+    int length = src.remaining();
+    crc.update(src.duplicate());
+
+    /** The header consists of the magic bytes, the DEFLATE method, no flags, no modification time, no extra flags and an unknown operating system. */
+    dst.put(new byte[] {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff});
+    DeflateCoding.deflate(src, dst, matcher);
+
+    int value = (int) crc.getValue();
+    for (int k = 0; k < 4; k++) {
+      dst.put((byte) (value >>> (8 * k)));
+    }
+    for (int k = 0; k < 4; k++) {
+      dst.put((byte) (length >>> (8 * k)));
+    }
+  }
+
+  /** A method which compresses the remaining bytes of a buffer into a raw DEFLATE stream, without a gzip header.
+   * @param src The buffer containing the bytes to be compressed, which is advanced to its limit.
+   * @param dst The buffer which receives the DEFLATE stream, which must have at least maxEncodedLength() bytes remaining.
+   * @param matcher The Match Finder used to find repeated sequences of bytes, whose window must be at most 32768, or null to only use Huffman Coding.
+   */
+  public static void deflate(ByteBuffer src, ByteBuffer dst, MatchFinder matcher) {
+    if (matcher != null && matcher.getWindow() > 32768) {
+      throw new IllegalArgumentException(String.format("DEFLATE distances are at most 32768, but the window is %d", matcher.getWindow()));
+    }
+
+    BitOutput out = new BitOutput(dst);
+    int offset = src.position();
+
+    /** Even an empty stream requires one final block. */
+    do {
+      int length = Math.min(CHUNK, src.limit() - offset);
+      DeflateCoding.chunk(src, offset, length, offset + length == src.limit(), matcher, out);
+      offset += length;
+    } while (offset < src.limit());
+
+    out.align();
+    src.position(src.limit());
+  }
+
+  /** A method which returns the largest amount of bytes that gzip() can write when compressing a given amount of bytes. A chunk is only written as a dynamic Huffman block if that is smaller than stored blocks, which add 5 bytes per 65535 bytes.
+   * @param length The amount of bytes to be compressed.
+   * @return The largest amount of bytes within the gzip stream.
+   */
+  public static long maxEncodedLength(long length) {
+    return length + 5 * (length / STORED + length / CHUNK + 2) + 18;
+  }
+
+  /** Writes a chunk of bytes as either a dynamic Huffman block or stored blocks, whichever is smaller. */
+  private static void chunk(ByteBuffer src, int offset, int length, boolean last, MatchFinder matcher, BitOutput out) {
+    int count = length;
+    if (matcher != null) {
+      count = matcher.parse(src, offset, length);
+    }
+
+    /** Counts the literal, length and distance symbols of every token, where END ends the block. */
+    int[] literal = new int[286], distance = new int[30];
+    long extra = 0;
+
+    for (int i = 0; i < count; i++) {
+      if (matcher == null || matcher.getLength(i) == 0) {
+        literal[(matcher == null ? src.get(offset + i) & 0xff : matcher.getValue(i))]++;
+      } else {
+        int l = MatchFinder.lengthSymbol(matcher.getLength(i)), d = MatchFinder.distanceSymbol(matcher.getValue(i));
+        literal[l]++;
+        distance[d]++;
+        extra += MatchFinder.lengthExtra(l) + MatchFinder.distanceExtra(d);
+      }
+    }
+    literal[MatchFinder.END]++;
+
+    int[] literals = DeflateCoding.lengths(literal, 15), distances = DeflateCoding.lengths(distance, 15);
+    int hlit = DeflateCoding.used(literals, 257), hdist = DeflateCoding.used(distances, 1);
+
+    /** The lengths of both Trees are written as one sequence, where runs of lengths are replaced by the repeat symbols 16, 17 and 18. */
+    int[] sequence = new int[hlit + hdist];
+    System.arraycopy(literals, 0, sequence, 0, hlit);
+    System.arraycopy(distances, 0, sequence, hlit, hdist);
+
+    int[] symbols = new int[sequence.length], extras = new int[sequence.length], lengths = new int[19];
+    int n = DeflateCoding.runs(sequence, symbols, extras);
+
+    for (int i = 0; i < n; i++) {
+      lengths[symbols[i]]++;
+    }
+
+    int[] codes = DeflateCoding.lengths(lengths, 7);
+    int hclen = 19;
+    while (hclen > 4 && codes[ORDER[hclen - 1]] == 0) {
+      hclen--;
+    }
+
+    /** The exact size of the dynamic Huffman block, compared to the size of stored blocks. */
+    long bits = 3 + 5 + 5 + 4 + 3 * hclen + extra;
+    for (int i = 0; i < n; i++) {
+      bits += codes[symbols[i]] + (symbols[i] == 16 ? 2 : symbols[i] == 17 ? 3 : symbols[i] == 18 ? 7 : 0);
+    }
+    for (int s = 0; s < 286; s++) {
+      bits += (long) literal[s] * literals[s];
+    }
+    for (int s = 0; s < 30; s++) {
+      bits += (long) distance[s] * distances[s];
+    }
+
+    long stored = 8L * length + 40L * Math.max(1, (length + STORED - 1) / STORED);
+
+    if (bits >= stored) {
+      DeflateCoding.stored(src, offset, length, last, out);
+      return;
+    }
+
+    out.write(last ? 1 : 0, 1);
+    out.write(2, 2);
+    out.write(hlit - 257, 5);
+    out.write(hdist - 1, 5);
+    out.write(hclen - 4, 4);
+
+    for (int i = 0; i < hclen; i++) {
+      out.write(codes[ORDER[i]], 3);
+    }
+
+    int[] lengthCodes = DeflateCoding.codes(codes), literalCodes = DeflateCoding.codes(literals), distanceCodes = DeflateCoding.codes(distances);
+
+    for (int i = 0; i < n; i++) {
+      out.write(lengthCodes[symbols[i]], codes[symbols[i]]);
+
+      if (symbols[i] >= 16) {
+        out.write(extras[i], (symbols[i] == 16 ? 2 : symbols[i] == 17 ? 3 : 7));
+      }
+    }
+
+    for (int i = 0; i < count; i++) {
+      if (matcher == null || matcher.getLength(i) == 0) {
+        int s = (matcher == null ? src.get(offset + i) & 0xff : matcher.getValue(i));
+        out.write(literalCodes[s], literals[s]);
+      } else {
+        int matched = matcher.getLength(i), value = matcher.getValue(i);
+        int l = MatchFinder.lengthSymbol(matched), d = MatchFinder.distanceSymbol(value);
+        out.write(literalCodes[l], literals[l]);
+        out.write(matched - MatchFinder.lengthBase(l), MatchFinder.lengthExtra(l));
+        out.write(distanceCodes[d], distances[d]);
+        out.write(value - MatchFinder.distanceBase(d), MatchFinder.distanceExtra(d));
+      }
+    }
+
+    out.write(literalCodes[MatchFinder.END], literals[MatchFinder.END]);
+  }
+
+  /** Writes a chunk of bytes as stored blocks of at most 65535 bytes, each of which starts at a whole byte with its length and the complement of its length. */
+  private static void stored(ByteBuffer src, int offset, int length, boolean last, BitOutput out) {
+    int position = offset;
+
+    do {
+      int size = Math.min(STORED, offset + length - position);
+      out.write((last && position + size == offset + length) ? 1 : 0, 1);
+      out.write(0, 2);
+      out.align();
+      out.write(size, 16);
+      out.write(~size & 0xffff, 16);
+      out.dst.put(src.slice(position, size));
+      position += size;
+    } while (position < offset + length);
+  }
+
+  /** Computes the lengths of the bit sequences of a DEFLATE Tree from a frequency table, where symbols which do not appear have no bit sequence. At least two symbols are given bit sequences, as some decoders reject a Tree with a singular bit sequence. */
+  private static int[] lengths(int[] frequencies, int limit) {
+    int distinct = 0;
+    for (int i = 0; i < frequencies.length; i++) {
+      distinct += (frequencies[i] > 0 ? 1 : 0);
+    }
+
+    int[] freq = frequencies.clone();
+    for (int i = 0; i < freq.length && distinct < 2; i++) {
+      if (freq[i] == 0) {
+        freq[i] = 1;
+        distinct++;
+      }
+    }
+
+    int[] symbols = new int[distinct], counts = new int[distinct], lengths = new int[freq.length];
+    for (int i = 0, k = 0; i < freq.length; i++) {
+      if (freq[i] > 0) {
+        symbols[k] = i;
+        counts[k++] = freq[i];
+      }
+    }
+
+    int[] limited = IntHuffmanCodeTable.lengths(counts, limit);
+    for (int k = 0; k < distinct; k++) {
+      lengths[symbols[k]] = limited[k];
+    }
+
+    return lengths;
+  }
+
+  /** Computes the canonical bit sequences of a DEFLATE Tree from their lengths, where shorter bit sequences come first and bit sequences of the same length are in order of their symbols (RFC 1951, section 3.2.2). The bit sequences are reversed, since DEFLATE writes them starting from their most significant bit within the least significant bits. */
+  private static int[] codes(int[] lengths) {
+    int[] count = new int[16], next = new int[16], codes = new int[lengths.length];
+
+    for (int length : lengths) {
+      count[length]++;
+    }
+    count[0] = 0;
+
+    for (int length = 1, code = 0; length < 16; length++) {
+      code = (code + count[length - 1]) << 1;
+      next[length] = code;
+    }
+
+    for (int s = 0; s < lengths.length; s++) {
+      if (lengths[s] > 0) {
+        codes[s] = Integer.reverse(next[lengths[s]]++) >>> (32 - lengths[s]);
+      }
+    }
+
+    return codes;
+  }
+
+  /** Returns the amount of symbols up to the last symbol with a bit sequence, which is at least a minimum. */
+  private static int used(int[] lengths, int minimum) {
+    int n = lengths.length;
+    while (n > minimum && lengths[n - 1] == 0) {
+      n--;
+    }
+
+    return n;
+  }
+
+  /** Replaces runs within a sequence of lengths by the repeat symbols: 16 repeats the previous length 3 to 6 times, 17 repeats 0 3 to 10 times, and 18 repeats 0 11 to 138 times. The extra bits of each repeat symbol are stored within extras.
+   * @return The amount of symbols.
+   */
+  private static int runs(int[] sequence, int[] symbols, int[] extras) {
+    int n = 0;
+
+    for (int i = 0; i < sequence.length; ) {
+      int length = sequence[i], run = 1;
+      while (i + run < sequence.length && sequence[i + run] == length) {
+        run++;
+      }
+
+      if (length == 0 && run >= 11) {
+        run = Math.min(run, 138);
+        symbols[n] = 18;
+        extras[n++] = run - 11;
+      } else if (length == 0 && run >= 3) {
+        symbols[n] = 17;
+        extras[n++] = run - 3;
+      } else if (length != 0 && run >= 4) {
+        /** The first length is written as is, and the following lengths are repeated. */
+        run = Math.min(run, 7);
+        symbols[n++] = length;
+        symbols[n] = 16;
+        extras[n++] = run - 4;
+      } else {
+        run = 1;
+        symbols[n++] = length;
+      }
+
+      i += run;
+    }
+
+    return n;
+  }
+
+  /** A Bit Writer which writes the least significant bit of every byte first, as required by DEFLATE. */
+  private static class BitOutput {
+    private final ByteBuffer dst;
+    /** buffer, count: The bits which were written but not yet stored within a whole byte, and the amount of such bits. */
+    private long buffer = 0;
+    private int count = 0;
+
+    private BitOutput(ByteBuffer dst) {
+      this.dst = dst;
+    }
+
+    /** Writes the lowest bits of a value, starting from the least significant bit. */
+    private void write(int value, int length) {
+      this.buffer |= (long) (value & ((1 << length) - 1)) << this.count;
+      this.count += length;
+
+      while (this.count >= 8) {
+        this.dst.put((byte) this.buffer);
+        this.buffer >>>= 8;
+        this.count -= 8;
+      }
+    }
+
+    /** Pads the last byte with zeros, so that the next bits start at a whole byte. */
+    private void align() {
+      if (this.count > 0) {
+        this.dst.put((byte) this.buffer);
+        this.buffer = 0;
+        this.count = 0;
+      }
+    }
+  }
+}
@@ -0,0 +1,619 @@
+import java.nio.ByteBuffer;
+
+/** A Block of bytes within a compressed File. Every Block is compressed independently of the other Blocks, using whichever method is expected to produce the smallest output:
+ * 1. STORED: The bytes are copied as is, which is used for bytes which are nearly incompressible, such as bytes from already compressed files.
+ * 2. RUN: Every byte within the Block is the same, so only the byte and the length of the Block are recorded.
+ * 3. HUFFMAN: The bytes are compressed using a Huffman Binary Tree built from the frequencies of the bytes within the Block.
+ * 4. PREVIOUS: The bytes are compressed using the Huffman Binary Tree of the previous Block, which is not written again.
+ * 5. MATCHED: Repeated sequences of bytes are replaced by references to earlier occurrences using a Match Finder, and the literal bytes, lengths and distances are compressed using two Huffman Binary Trees.
+ * 6. TRANSFORMED: The bytes are rearranged using a Burrows-Wheeler Transform, followed by Move-To-Front and Run Length Encoding, and the resulting symbols are compressed using a Huffman Binary Tree.
+ * An INDEX Block contains no bytes of the File, but records the position of the Blocks before it (see BlockIndex), and is skipped when decompressing.
+ * @author Henry Wang
+ */
+public class HuffmanBlock {
+  public static final char STORED = 'S', RUN = 'R', HUFFMAN = 'H', PREVIOUS = 'P', MATCHED = 'L', TRANSFORMED = 'B', INDEX = 'I';
+  private char mode;
+  /** length: The amount of uncompressed bytes within the Block.
+   *  size: The amount of compressed bytes within the Block.
+   */
+  private int length, size, padding = 0;
+  private byte symbol;
+  /** table: The bit sequences of the Huffman Binary Tree used to compress a HUFFMAN or PREVIOUS Block. */
+  private HuffmanCodeTable table;
+  /** literals, distances: The bit sequences of the literal and length symbols, and of the distance symbols, of a MATCHED Block, or of the symbols of a TRANSFORMED Block.
+   *  tokens, values: The length and value of each token found by the Match Finder within a MATCHED Block, or the symbols of a TRANSFORMED Block.
+   *  primary: The primary index of the Burrows-Wheeler Transform of a TRANSFORMED Block.
+   */
+  private IntHuffmanCodeTable literals, distances;
+  private int[] tokens, values;
+  private int primary;
+  /** bytes: The compressed bytes of the Block, which are written after the header of the Block. */
+  private byte[] bytes;
+
+  /** A constructor which compresses a range of bytes as a singular Block, using whichever method allowed by the options is smallest.
+   * @param data The bytes containing the Block.
+   * @param offset The index of the first byte of the Block.
+   * @param length The amount of bytes within the Block.
+   * @param options The choices used to compress the Block.
+   */
+  public HuffmanBlock(byte[] data, int offset, int length, Options options) {
+    this(ByteBuffer.wrap(data), offset, length, options);
+    this.bytes = new byte[this.size];
+    this.writeBytes(ByteBuffer.wrap(data), offset, ByteBuffer.wrap(this.bytes));
+  }
+
+  /** A constructor which chooses the method used to compress a range of bytes as a singular Block, without compressing the bytes, which are written afterwards using write().
+   * @param data The buffer containing the Block, which may be a direct or memory mapped buffer.
+   * @param offset The index of the first byte of the Block within the buffer.
+   * @param length The amount of bytes within the Block.
+   * @param options The choices used to compress the Block.
+   */
+  public HuffmanBlock(ByteBuffer data, int offset, int length, Options options) {
+    this.length = length;
+    this.choose(options.frequencies != null ? options.frequencies : HuffmanBlock.frequencies(data, offset, length), options.previous, options.limit);
+
+    if (options.matcher != null && this.mode != RUN) {
+      this.match(data, offset, options.matcher);
+    }
+
+    if (options.transformer != null && this.mode != RUN) {
+      this.transform(data, offset, options.transformer);
+    }
+  }
+
+  /** A constructor which compresses a range of bytes as a singular Block using a given Code Table, without counting the frequencies of the bytes. A Block which would grow is stored instead, and a singular repeated byte is written as a RUN Block.
+   * @param data The buffer containing the Block, which may be a direct or memory mapped buffer.
+   * @param offset The index of the first byte of the Block within the buffer.
+   * @param length The amount of bytes within the Block.
+   * @param table The Code Table, which must have a bit sequence for every byte within the Block, such as a Code Table built by HuffmanCodeTable.sample().
+   * @param shared Whether the Code Table was already written by a previous Block, in which case this Block reuses it (PREVIOUS) instead of writing it again (HUFFMAN).
+   */
+  public HuffmanBlock(ByteBuffer data, int offset, int length, HuffmanCodeTable table, boolean shared) {
+    this.length = length;
+
+    /** The frequencies are not counted, so a Block consisting of a singular repeated byte is found by comparing its bytes to the first byte, which stops at the first different byte for most Blocks. */
+    if (length > 0 && HuffmanBlock.repeats(data, offset, length)) {
+      this.mode = RUN;
+      this.symbol = data.get(offset);
+      this.size = 0;
+      this.bytes = new byte[0];
+      return;
+    }
+
+    BitWriter out = new BitWriter(Math.max(length / 2, 16));
+    table.encode(data, offset, length, out);
+    int padding = out.flush();
+
+    if (out.size() + (shared ? 0 : table.toString().length()) >= length) {
+      this.mode = STORED;
+      this.size = length;
+      this.bytes = new byte[length];
+      data.get(offset, this.bytes);
+    } else {
+      this.mode = (shared ? PREVIOUS : HUFFMAN);
+      this.table = table;
+      this.padding = padding;
+      this.bytes = out.toByteArray();
+      this.size = this.bytes.length;
+    }
+  }
+
+  /** Checks whether every byte within a range is the same as its first byte. */
+  private static boolean repeats(ByteBuffer data, int offset, int length) {
+    byte first = data.get(offset);
+
+    for (int i = offset + 1, end = offset + length; i < end; i++) {
+      if (data.get(i) != first) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /** Chooses between the STORED, RUN, HUFFMAN and PREVIOUS methods using the frequency table of the Block. */
+  private void choose(int[] freq, HuffmanBlock previous, int limit) {
+    int length = this.length;
+    int distinct = 0;
+
+    for (int i = 0; i < freq.length; i++) {
+      if (freq[i] > 0) {
+        distinct++;
+        this.symbol = (byte) (i - 128);
+      }
+    }
+
+    /** A Block consisting of a singular repeated byte does not require any bits besides its header. */
+    if (distinct == 1) {
+      this.mode = RUN;
+      return;
+    }
+
+    /** The cost of reusing the Huffman Binary Tree of the previous Block, which is only possible if every byte within this Block has a bit sequence within that Tree. */
+    long reuse = -1;
+
+    if (previous != null && previous.table != null) {
+      reuse = previous.table.cost(freq);
+    }
+
+    long reused = (reuse >= 0 ? (reuse + 7) / 8 : Long.MAX_VALUE);
+
+    /** The entropy of the Block is a lower bound on the size of any Huffman Coding of the Block, and a bracket representation of a Binary Tree with n leaves requires at least 4n - 3 characters. */
+    double estimate = HuffmanBlock.entropy(freq, length) * length / 8 + (4 * distinct - 3);
+
+    /** If the previous Huffman Binary Tree is already at least as small as the lower bound of a new Tree, reuse it without building a new Tree. */
+    if (reused < length && reused <= estimate) {
+      this.select(PREVIOUS, previous.table, reuse);
+      return;
+    }
+
+    /** If even the lower bound of a new Tree is not smaller than the Block, there is no need to build the Huffman Binary Tree. */
+    if (distinct == 0 || estimate >= length) {
+      this.mode = STORED;
+      this.size = length;
+      return;
+    }
+
+    HuffmanCodeTable table = HuffmanCodeTable.fromFrequencies(freq, limit);
+
+    /** The exact size of the new Huffman Coding includes the bracket representation of the Tree written within the header. */
+    long bits = table.cost(freq), cost = (bits + 7) / 8 + table.toString().length();
+
+    if (Math.min(cost, reused) >= length) {
+      this.mode = STORED;
+      this.size = length;
+    } else if (reused <= cost) {
+      this.select(PREVIOUS, previous.table, reuse);
+    } else {
+      this.select(HUFFMAN, table, bits);
+    }
+  }
+
+  /** Finds the repeated sequences of bytes within the Block using a Match Finder, and chooses the MATCHED method if the literal bytes, lengths and distances, along with their Huffman Binary Trees, are smaller than the method chosen so far. */
+  private void match(ByteBuffer data, int offset, MatchFinder matcher) {
+    int count = matcher.parse(data, offset, this.length);
+    int[] literal = new int[286], distance = new int[MatchFinder.distanceSymbol(matcher.getWindow()) + 1];
+    long extra = 0;
+
+    /** Counts the symbols of every token, along with the extra bits following length and distance symbols. */
+    for (int i = 0; i < count; i++) {
+      if (matcher.getLength(i) == 0) {
+        literal[matcher.getValue(i)]++;
+      } else {
+        int l = MatchFinder.lengthSymbol(matcher.getLength(i)), d = MatchFinder.distanceSymbol(matcher.getValue(i));
+        literal[l]++;
+        distance[d]++;
+        extra += MatchFinder.lengthExtra(l) + MatchFinder.distanceExtra(d);
+      }
+    }
+
+    IntHuffmanCodeTable literals = IntHuffmanCodeTable.fromFrequencies(literal), distances = IntHuffmanCodeTable.fromFrequencies(distance);
+    long bits = literals.cost(literal) + distances.cost(distance) + extra;
+    long cost = (bits + 7) / 8 + literals.toString().length() + distances.toString().length() + 1;
+
+    if (cost < this.size + this.table().length()) {
+      this.mode = MATCHED;
+      this.table = null;
+      this.literals = literals;
+      this.distances = distances;
+      this.tokens = new int[count];
+      this.values = new int[count];
+      this.size = (int) ((bits + 7) / 8);
+      this.padding = (int) ((8 - bits % 8) % 8);
+
+      for (int i = 0; i < count; i++) {
+        this.tokens[i] = matcher.getLength(i);
+        this.values[i] = matcher.getValue(i);
+      }
+    }
+  }
+
+  /** Rearranges the bytes of the Block using a Burrows-Wheeler Transform, and chooses the TRANSFORMED method if the transformed symbols, along with their Huffman Binary Tree and the primary index, are smaller than the method chosen so far. */
+  private void transform(ByteBuffer data, int offset, BurrowsWheeler transformer) {
+    int count = transformer.transform(data, offset, this.length);
+    int[] freq = new int[BurrowsWheeler.SYMBOLS];
+
+    for (int i = 0; i < count; i++) {
+      freq[transformer.getSymbol(i)]++;
+    }
+
+    IntHuffmanCodeTable table = IntHuffmanCodeTable.fromFrequencies(freq);
+    long bits = table.cost(freq);
+    long cost = (bits + 7) / 8 + table.toString().length() + Integer.toString(transformer.getPrimary()).length() + 1;
+
+    if (cost < this.size + this.table().length()) {
+      this.mode = TRANSFORMED;
+      this.table = null;
+      this.literals = table;
+      this.distances = null;
+      this.tokens = new int[count];
+      this.values = null;
+      this.primary = transformer.getPrimary();
+      this.size = (int) ((bits + 7) / 8);
+      this.padding = (int) ((8 - bits % 8) % 8);
+
+      for (int i = 0; i < count; i++) {
+        this.tokens[i] = transformer.getSymbol(i);
+      }
+    }
+  }
+
+  /** Chooses a Huffman Binary Tree to compress the Block, where bits is the amount of compressed bits using that Tree. */
+  private void select(char mode, HuffmanCodeTable table, long bits) {
+    this.mode = mode;
+    this.table = table;
+    this.size = (int) ((bits + 7) / 8);
+    this.padding = (int) ((8 - bits % 8) % 8);
+  }
+
+  /** Writes the header and compressed bytes of the Block to a buffer, which may be a direct or memory mapped buffer. Unless the Block already holds its compressed bytes, the bytes are compressed directly into the buffer without an intermediate copy.
+   * @param data The buffer containing the Block.
+   * @param offset The index of the first byte of the Block within the buffer.
+   * @param dst The buffer which receives the header and compressed bytes, starting from its position.
+   */
+  public void write(ByteBuffer data, int offset, ByteBuffer dst) {
+    dst.put(this.getHeader().getBytes());
+
+    /** A Block which already holds its compressed bytes does not compress them again. */
+    if (this.bytes != null) {
+      dst.put(this.bytes);
+    } else {
+      this.writeBytes(data, offset, dst);
+    }
+  }
+
+  /** Writes the compressed bytes of the Block to a buffer. */
+  private void writeBytes(ByteBuffer data, int offset, ByteBuffer dst) {
+    if (this.mode == STORED) {
+      dst.put(data.slice(offset, this.length));
+    } else if (this.mode == HUFFMAN || this.mode == PREVIOUS) {
+      BitWriter out = new BitWriter(dst);
+      this.table.encode(data, offset, this.length, out);
+      out.flush();
+    } else if (this.mode == MATCHED) {
+      BitWriter out = new BitWriter(dst);
+
+      /** A literal byte is written as its symbol, and a match is written as its length symbol, the extra bits of the length, its distance symbol and the extra bits of the distance. */
+      for (int i = 0; i < this.tokens.length; i++) {
+        if (this.tokens[i] == 0) {
+          this.literals.encode(this.values[i], out);
+        } else {
+          int l = MatchFinder.lengthSymbol(this.tokens[i]), d = MatchFinder.distanceSymbol(this.values[i]);
+          this.literals.encode(l, out);
+          out.write(this.tokens[i] - MatchFinder.lengthBase(l), MatchFinder.lengthExtra(l));
+          this.distances.encode(d, out);
+          out.write(this.values[i] - MatchFinder.distanceBase(d), MatchFinder.distanceExtra(d));
+        }
+      }
+
+      out.flush();
+    } else if (this.mode == TRANSFORMED) {
+      BitWriter out = new BitWriter(dst);
+
+      for (int i = 0; i < this.tokens.length; i++) {
+        this.literals.encode(this.tokens[i], out);
+      }
+
+      out.flush();
+    }
+  }
+
+  /** Decompresses a singular Block, reading its header and compressed bytes from the position of a buffer. Both buffers may be direct or memory mapped buffers, and the compressed bytes are read in place.
+   * @param src The buffer containing the Block, which is advanced past the Block.
+   * @param dst The buffer which receives the decompressed bytes, which is advanced past the decompressed bytes.
+   * @param previous The Code Table of the most recent Huffman Binary Tree, used to decompress PREVIOUS Blocks.
+   * @return The Code Table of the most recent Huffman Binary Tree after this Block.
+   */
+  public static HuffmanCodeTable decode(ByteBuffer src, ByteBuffer dst, HuffmanCodeTable previous) {
+    String[] header = HuffmanBlock.readLine(src).split(" ", 5);
+    char mode = header[0].charAt(0);
+    int length = Integer.parseInt(header[1]), size = Integer.parseInt(header[3]), start = src.position();
+
+    if (mode == INDEX) {
+      /** An index only describes the Blocks before it, so nothing is decompressed. */
+    } else if (mode == STORED) {
+      dst.put(src.slice(start, size));
+    } else if (mode == RUN) {
+      byte symbol = (byte) Integer.parseInt(header[4]);
+
+      for (int i = 0; i < length; i++) {
+        dst.put(symbol);
+      }
+    } else if (mode == MATCHED) {
+      String[] tables = header[4].split("/", -1);
+      IntHuffmanCodeTable literals = IntHuffmanCodeTable.parse(tables[0]), distances = IntHuffmanCodeTable.parse(tables[1]);
+      BitReader in = new BitReader(src, start);
+      int end = dst.position() + length;
+
+      /** A match copies bytes which were already decompressed, one at a time, since the copied bytes may overlap the bytes being written. */
+      while (dst.position() < end) {
+        int symbol = literals.decode(in);
+
+        if (symbol < MatchFinder.LITERALS) {
+          dst.put((byte) symbol);
+        } else {
+          int l = MatchFinder.lengthBase(symbol) + (int) in.read(MatchFinder.lengthExtra(symbol));
+          int d = distances.decode(in);
+          int from = dst.position() - MatchFinder.distanceBase(d) - (int) in.read(MatchFinder.distanceExtra(d));
+
+          for (int i = 0; i < l; i++) {
+            dst.put(dst.get(from + i));
+          }
+        }
+      }
+    } else if (mode == TRANSFORMED) {
+      String[] tables = header[4].split("/", 2);
+      BurrowsWheeler.inverse(IntHuffmanCodeTable.parse(tables[1]), new BitReader(src, start), Integer.parseInt(tables[0]), dst, length);
+    } else {
+      if (mode == HUFFMAN) {
+        previous = HuffmanCodeTable.parse(header[4]);
+      }
+
+      previous.decode(src, start, dst, length);
+    }
+
+    src.position(start + size);
+    return previous;
+  }
+
+  /** Reads a line of text from the position of a buffer, which is advanced past the line.
+   * @param src The buffer containing the line.
+   * @return The line, without the line terminator.
+   */
+  public static String readLine(ByteBuffer src) {
+    StringBuilder line = new StringBuilder();
+
+    while (src.hasRemaining()) {
+      char c = (char) (src.get() & 0xff);
+
+      if (c == '\n') {
+        break;
+      } else if (c != '\r') {
+        line.append(c);
+      }
+    }
+
+    return line.toString();
+  }
+
+  /** Generates a frequency table for a range of bytes. Since bytes range from [-128, 127], a shift of 128 is applied to the index.
+   * @param data The bytes to be counted.
+   * @param offset The index of the first byte to be counted.
+   * @param length The amount of bytes to be counted.
+   * @return The frequency table of the bytes.
+   */
+  public static int[] frequencies(byte[] data, int offset, int length) {
+    return HuffmanBlock.frequencies(ByteBuffer.wrap(data), offset, length);
+  }
+
+  /** Generates a frequency table for a range of bytes within a buffer, which may be a direct or memory mapped buffer.
+   * @param data The buffer containing the bytes to be counted.
+   * @param offset The index of the first byte to be counted.
+   * @param length The amount of bytes to be counted.
+   * @return The frequency table of the bytes.
+   */
+  public static int[] frequencies(ByteBuffer data, int offset, int length) {
+    /** Bytes are loaded 4 at a time using a singular int, and each of the 4 bytes is counted within its own table, which are added together afterwards. Consecutive equal bytes then increment different counters, instead of each increment waiting for the previous increment of the same counter. The order of the bytes within the int does not matter, since every byte is counted. */
+    int[] first = new int[256], second = new int[256], third = new int[256], fourth = new int[256];
+    int i = offset, end = offset + length;
+
+    for (; i + 4 <= end; i += 4) {
+      int word = data.getInt(i);
+      first[word >>> 24]++;
+      second[(word >>> 16) & 0xff]++;
+      third[(word >>> 8) & 0xff]++;
+      fourth[word & 0xff]++;
+    }
+
+    for (; i < end; i++) {
+      first[data.get(i) & 0xff]++;
+    }
+
+    int[] freq = new int[257];
+    for (int b = 0; b < 256; b++) {
+      freq[(byte) b + 128] = first[b] + second[b] + third[b] + fourth[b];
+    }
+
+    return freq;
+  }
+
+
+  /** Computes the Shannon entropy of a frequency table, which is the average amount of bits required to represent each counted value.
+   * @param frequencies The frequency table.
+   * @param total The sum of the frequency table.
+   * @return The entropy of the frequency table, in bits per value.
+   */
+  public static double entropy(int[] frequencies, int total) {
+    double entropy = 0;
+
+    for (int i = 0; i < frequencies.length; i++) {
+      if (frequencies[i] > 0) {
+        double p = (double) frequencies[i] / total;
+        entropy -= p * Math.log(p);
+      }
+    }
+
+    return entropy / Math.log(2);
+  }
+
+  /** A method that returns a String bracket representation of a Huffman Binary Tree, where each leaf is represented by its byte within the range [0, 255].
+   * @param node The root node of the Huffman Binary Tree.
+   * @return A String representation of the Huffman Binary Tree.
+   */
+  public static String bracket(HuffmanNode<Byte> node) {
+    if (node == null) {
+      return null;
+    }
+
+    /** If the current Node has two children, find the String representation of each child Node. */
+    if (node.children() == 2) {
+      String R = (!node.getRight().isLeaf() ? HuffmanBlock.bracket(node.getRight()) : Integer.toString((int) node.getRight().getValue() + (node.getRight().getValue() < 0 ? 2 << 7 : 0)));
+      String L = (!node.getLeft().isLeaf() ? HuffmanBlock.bracket(node.getLeft()) : Integer.toString((int) node.getLeft().getValue() + (node.getLeft().getValue() < 0 ? 2 << 7 : 0)));
+
+      return String.format("(%s %s)", L, R);
+    /** If the current Node has no children, find the String representation of the child Node. */
+    } else if (node.children() == 1) {
+      return String.format("(%s)", (node.getLeft() != null ? HuffmanBlock.bracket(node.getLeft()) : HuffmanBlock.bracket(node.getRight())));
+    }
+
+    return node.toString();
+  }
+
+  /** A method which reconstructs a Huffman Binary Tree from its bracket representation, as written within the header of a Block.
+   * @param bracket The bracket representation of the Huffman Binary Tree.
+   * @return The Huffman Binary Tree.
+   */
+  public static HuffmanTree<Byte> parse(String bracket) {
+    HuffmanTree<Byte> tree = new HuffmanTree<Byte>();
+    tree.setRoot(HuffmanBlock.parse(bracket, new int[] {0}));
+    return tree;
+  }
+
+  /** Recursively parses the Node starting at index[0] of the bracket representation, and advances index[0] past the Node. */
+  private static HuffmanNode<Byte> parse(String bracket, int[] index) {
+    /** A bracket denotes an internal Node, consisting of the left child Node optionally followed by a space and the right child Node. */
+    if (bracket.charAt(index[0]) == '(') {
+      index[0]++;
+      HuffmanNode<Byte> left = HuffmanBlock.parse(bracket, index), right = null;
+
+      if (bracket.charAt(index[0]) == ' ') {
+        index[0]++;
+        right = HuffmanBlock.parse(bracket, index);
+      }
+
+      index[0]++;
+      return new HuffmanNode<Byte>((byte) 0, left, right);
+    }
+
+    /** Otherwise, the Node is a leaf, represented by its byte within the range [0, 255]. */
+    int start = index[0];
+    while (index[0] < bracket.length() && Character.isDigit(bracket.charAt(index[0]))) {
+      index[0]++;
+    }
+
+    return new HuffmanNode<Byte>((byte) Integer.parseInt(bracket.substring(start, index[0])));
+  }
+
+  /** A method which returns the header written before the compressed bytes of the Block: the mode, the amount of uncompressed bytes, the amount of padding bits, the amount of compressed bytes, and either the Huffman Binary Tree (HUFFMAN), the repeated byte (RUN), the literal and length codes followed by the distance codes, separated by a slash (MATCHED), or the primary index followed by the codes of the symbols, separated by a slash (TRANSFORMED).
+   * @return The header of the Block.
+   */
+  public String getHeader() {
+    return String.format("%c %d %d %d %s\r\n", this.mode, this.length, this.padding, this.size, this.table());
+  }
+
+  /** Returns the representation of the Huffman Binary Trees written within the header, which depends on the mode of the Block. */
+  private String table() {
+    switch (this.mode) {
+      case HUFFMAN:
+        return this.table.toString();
+      case RUN:
+        return Integer.toString(this.symbol & 0xff);
+      case MATCHED:
+        return this.literals + "/" + this.distances;
+      case TRANSFORMED:
+        return this.primary + "/" + this.literals;
+      default:
+        return "-";
+    }
+  }
+
+  /** A getter method which returns the method used to compress the Block.
+   * @return STORED, RUN, HUFFMAN, PREVIOUS, MATCHED or TRANSFORMED.
+   */
+  public char getMode() {
+    return this.mode;
+  }
+
+  /** A getter method which returns the amount of uncompressed bytes within the Block.
+   * @return The amount of uncompressed bytes within the Block.
+   */
+  public int getLength() {
+    return this.length;
+  }
+
+  /** A getter method that returns the amount of padding after the compressed bits of the Block.
+   * @return The amount of padding within the Block.
+   */
+  public int getPadding() {
+    return this.padding;
+  }
+
+  /** A getter method which returns the repeated byte of a RUN Block.
+   * @return The repeated byte of the Block.
+   */
+  public byte getSymbol() {
+    return this.symbol;
+  }
+
+  /** A getter method which returns the Code Table of a HUFFMAN or PREVIOUS Block. Other Blocks do not have a Huffman Binary Tree, and return null.
+   * @return The Code Table of the Block.
+   */
+  public HuffmanCodeTable getTable() {
+    return this.table;
+  }
+
+  /** A getter method which returns the amount of compressed bytes within the Block.
+   * @return The amount of compressed bytes within the Block.
+   */
+  public int getSize() {
+    return this.size;
+  }
+
+  /** A getter method which returns the compressed bytes of the Block. Blocks which were only chosen from a buffer, and written using write(), do not keep their compressed bytes, and return null.
+   * @return The compressed bytes of the Block.
+   */
+  public byte[] getBytes() {
+    return this.bytes;
+  }
+
+  /** The choices used to compress a Block besides its bytes. By default, a Block only uses Huffman Coding with its own Huffman Binary Tree.
+   * @author Henry Wang
+   */
+  public static class Options {
+    private HuffmanBlock previous;
+    private MatchFinder matcher;
+    private BurrowsWheeler transformer;
+    private int limit;
+    private int[] frequencies;
+
+    /** Allows the Block to reuse the Huffman Binary Tree of a previous Block if that is cheaper, and returns these options.
+     * @param previous The most recent Block within the File which has a Huffman Binary Tree, or null if there is no such Block.
+     */
+    public Options setPrevious(HuffmanBlock previous) {
+      this.previous = previous;
+      return this;
+    }
+
+    /** Allows the Block to replace repeated sequences of bytes by earlier occurrences, and returns these options.
+     * @param matcher The Match Finder used to find repeated sequences of bytes, or null to not find repeated sequences.
+     */
+    public Options setMatcher(MatchFinder matcher) {
+      this.matcher = matcher;
+      return this;
+    }
+
+    /** Allows the Block to rearrange its bytes before compressing them, and returns these options.
+     * @param transformer The Burrows-Wheeler Transform used to rearrange the bytes, or null to not rearrange the bytes.
+     */
+    public Options setTransformer(BurrowsWheeler transformer) {
+      this.transformer = transformer;
+      return this;
+    }
+
+    /** Limits the length of the bit sequences of a new Huffman Binary Tree of bytes, and returns these options.
+     * @param limit The largest length of a bit sequence of a HUFFMAN Block, between 8 and 63, or 0 for no limit.
+     */
+    public Options setLimit(int limit) {
+      this.limit = limit;
+      return this;
+    }
+
+    /** Uses a frequency table which was already counted, such as by a Segmenter, and returns these options.
+     * @param frequencies The frequency table of the bytes within the Block, as returned by frequencies(), or null to count the bytes.
+     */
+    public Options setFrequencies(int[] frequencies) {
+      this.frequencies = frequencies;
+      return this;
+    }
+  }
+}
@@ -0,0 +1,338 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/** An immutable table of the bit sequences of each byte within a Huffman Binary Tree. Since a Code Table cannot be changed once it is built, a singular Code Table can be shared between any amount of threads which compress or decompress bytes at the same time, without locks or copies.
+ * @author Henry Wang
+ */
+public final class HuffmanCodeTable {
+  /** tree: The Huffman Binary Tree used to decompress bytes, which also holds the length of the bit sequence of each byte.
+   *  codes: The bit sequence of each byte, indexed by byte + 128.
+   */
+  private final CompactHuffmanTree tree;
+  private final long[] codes = new long[257];
+  /** bracket: The bracket representation of the Huffman Binary Tree, which is only built once it is required, since Code Tables which only decompress bytes do not need it. */
+  private String bracket;
+  /** lookup, bits: The symbol and length of every bit sequence of at most bits bits, indexed by the next bits bits, so most bytes are decompressed using a singular lookup instead of one Node per bit. An entry of a longer bit sequence contains the complement of the Node reached after bits bits instead. */
+  private final short[] lookup;
+  private final int bits;
+  /** The largest amount of bits used to index the lookup table, which keeps the table within 2 KB. */
+  private static final int LOOKUP_BITS = 10;
+
+  /** A constructor which builds a Code Table from a Huffman Binary Tree.
+   * @param tree The Huffman Binary Tree, which is not changed afterwards.
+   */
+  private HuffmanCodeTable(CompactHuffmanTree tree) {
+    this.tree = tree;
+    this.initialize(0, 0);
+
+    int longest = 0;
+    for (int b = -128; b < 128; b++) {
+      longest = Math.max(longest, tree.getLength((byte) b));
+    }
+
+    this.bits = Math.min(longest, LOOKUP_BITS);
+    this.lookup = new short[1 << this.bits];
+    this.fill(0, 0, 0);
+  }
+
+  /** Recursively fills the lookup table, where every leaf within bits bits of the root fills the range of entries starting with its bit sequence.
+   * @param node The current Node.
+   * @param depth The length of the bit sequence of the current Node.
+   * @param prefix The bit sequence of the current Node.
+   */
+  private void fill(int node, int depth, int prefix) {
+    if (this.tree.isLeaf(node)) {
+      /** A Tree consisting of a singular leaf uses one bit per byte, so its leaf fills every entry but is one bit long. */
+      byte b = this.tree.getSymbol(node);
+      int shift = this.bits - depth;
+      Arrays.fill(this.lookup, prefix << shift, (prefix + 1) << shift, (short) ((this.tree.getLength(b) << 8) | (b & 0xff)));
+    } else if (depth == this.bits) {
+      this.lookup[prefix] = (short) ~node;
+    } else {
+      this.fill(this.tree.getLeft(node), depth + 1, prefix << 1);
+      this.fill(this.tree.getRight(node), depth + 1, (prefix << 1) | 1);
+    }
+  }
+
+  /** Recursively records the bit sequence of each leaf.
+   * @param node The current Node.
+   * @param code The bit sequence of the current Node.
+   */
+  private void initialize(int node, long code) {
+    if (this.tree.isLeaf(node)) {
+      this.codes[this.tree.getSymbol(node) + 128] = code;
+    } else {
+      this.initialize(this.tree.getLeft(node), code << 1);
+      this.initialize(this.tree.getRight(node), (code << 1) | 1);
+    }
+  }
+
+  /** Builds a Code Table from a frequency table of bytes, using the Huffman Binary Tree generated by the Huffman Coding Compression Method.
+   * @param frequencies The frequency table of bytes, indexed by byte + 128, which must contain at least two different bytes.
+   * @return The Code Table.
+   */
+  public static HuffmanCodeTable fromFrequencies(int[] frequencies) {
+    return new HuffmanCodeTable(CompactHuffmanTree.fromFrequencies(frequencies));
+  }
+
+  /** Builds a Code Table from a frequency table of bytes, where no bit sequence is longer than a limit. Shorter bit sequences are decompressed using fewer lookups, at the cost of a slightly larger output. If the Huffman Binary Tree is already within the limit, it is used as is; otherwise, the lengths are limited in the same way as IntHuffmanCodeTable, and the canonical Tree of those lengths is used.
+   * @param frequencies The frequency table of bytes, indexed by byte + 128, which must contain at least two different bytes.
+   * @param limit The largest length of a bit sequence, between 8 and 63, or 0 for no limit.
+   * @return The Code Table.
+   */
+  public static HuffmanCodeTable fromFrequencies(int[] frequencies, int limit) {
+    CompactHuffmanTree tree = CompactHuffmanTree.fromFrequencies(frequencies);
+    int longest = 0;
+
+    for (int b = -128; b < 128; b++) {
+      longest = Math.max(longest, tree.getLength((byte) b));
+    }
+
+    if (limit <= 0 || longest <= limit) {
+      return new HuffmanCodeTable(tree);
+    }
+
+    int distinct = 0;
+    for (int i = 0; i < 256; i++) {
+      distinct += (frequencies[i] > 0 ? 1 : 0);
+    }
+
+    int[] counts = new int[distinct], lengths = new int[257];
+    for (int i = 0, k = 0; i < 256; i++) {
+      if (frequencies[i] > 0) {
+        counts[k++] = frequencies[i];
+      }
+    }
+
+    int[] limited = IntHuffmanCodeTable.lengths(counts, limit);
+    for (int i = 0, k = 0; i < 256; i++) {
+      if (frequencies[i] > 0) {
+        lengths[i] = limited[k++];
+      }
+    }
+
+    return new HuffmanCodeTable(CompactHuffmanTree.fromLengths(lengths));
+  }
+
+  /** Builds a Code Table from sample bytes, which may then be shared to compress other bytes with similar frequencies. Every byte is given a bit sequence, so bytes which do not appear within the sample can still be compressed.
+   * @param sample The sample bytes.
+   * @return The Code Table.
+   */
+  public static HuffmanCodeTable train(byte[] sample) {
+    return HuffmanCodeTable.escaped(HuffmanBlock.frequencies(sample, 0, sample.length));
+  }
+
+  /** Builds a Code Table from a stratified sample of a range of bytes, so that a Code Table for a huge range can be built without reading every byte. Like train(), every byte is given a bit sequence, so bytes which are not sampled can still be compressed.
+   * @param data The buffer containing the bytes, which may be a direct or memory mapped buffer.
+   * @param offset The index of the first byte.
+   * @param length The amount of bytes.
+   * @param rate The fraction of windows to be sampled, between 0 and 1. At least one window is sampled.
+   * @param window The amount of bytes within each window.
+   * @return The Code Table.
+   */
+  public static HuffmanCodeTable sample(ByteBuffer data, int offset, int length, double rate, int window) {
+    return HuffmanCodeTable.escaped(HuffmanCodeTable.sampleFrequencies(data, offset, length, rate, window));
+  }
+
+  /** Counts a stratified sample of a range of bytes. The range is split into windows, the windows are split into equal strata, and the middle window of each stratum is counted, so every part of the range is represented.
+   * @param data The buffer containing the bytes, which may be a direct or memory mapped buffer.
+   * @param offset The index of the first byte.
+   * @param length The amount of bytes.
+   * @param rate The fraction of windows to be sampled, between 0 and 1. At least one window is sampled.
+   * @param window The amount of bytes within each window.
+   * @return The frequency table of the sampled bytes, indexed by byte + 128.
+   */
+  public static int[] sampleFrequencies(ByteBuffer data, int offset, int length, double rate, int window) {
+    int windows = (int) (((long) length + window - 1) / window);
+    int count = (int) Math.min(windows, Math.max(1, Math.ceil(windows * rate)));
+    int[] freq = new int[257];
+
+    for (int k = 0; k < count; k++) {
+      int start = offset + (int) (((2L * k + 1) * windows) / (2L * count)) * window;
+      int[] sampled = HuffmanBlock.frequencies(data, start, Math.min(window, offset + length - start));
+
+      for (int i = 0; i < freq.length; i++) {
+        freq[i] += sampled[i];
+      }
+    }
+
+    return freq;
+  }
+
+  /** Builds a Code Table which gives a bit sequence to every byte, including the bytes which were not counted. The uncounted bytes share a total weight of about 1/256 of the counted bytes, so their bit sequences barely lengthen those of the counted bytes.
+   * @param frequencies The frequency table of bytes, indexed by byte + 128, which is not changed.
+   * @return The Code Table.
+   */
+  public static HuffmanCodeTable escaped(int[] frequencies) {
+    int[] freq = Arrays.copyOf(frequencies, 257);
+    long total = 0;
+    int uncounted = 0;
+
+    for (int i = 0; i < 256; i++) {
+      total += freq[i];
+      uncounted += (freq[i] == 0 ? 1 : 0);
+    }
+
+    /** Each uncounted byte has a weight of 1, so the counted bytes are scaled up until they outweigh the uncounted bytes 256 to 1, which a large sample already does. */
+    long scale = Math.max(1, Math.min((256L * uncounted + total - 1) / Math.max(total, 1), (Integer.MAX_VALUE / 2) / Math.max(total, 1)));
+
+    for (int i = 0; i < 256; i++) {
+      freq[i] = (freq[i] == 0 ? 1 : (int) (freq[i] * scale));
+    }
+
+    return HuffmanCodeTable.fromFrequencies(freq);
+  }
+
+  /** Checks whether every byte within a range has a bit sequence, so the range can be compressed using this Code Table.
+   * @param data The buffer containing the bytes, which may be a direct or memory mapped buffer.
+   * @param offset The index of the first byte.
+   * @param length The amount of bytes.
+   * @return Whether every byte has a bit sequence.
+   */
+  public boolean covers(ByteBuffer data, int offset, int length) {
+    for (int i = offset; i < offset + length; i++) {
+      if (this.tree.getLength(data.get(i)) == 0) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /** Builds a Code Table from the bracket representation of a Huffman Binary Tree, as written within the header of a Block.
+   * @param bracket The bracket representation of the Huffman Binary Tree.
+   * @return The Code Table.
+   */
+  public static HuffmanCodeTable parse(String bracket) {
+    return new HuffmanCodeTable(CompactHuffmanTree.parse(bracket));
+  }
+
+  /** Computes the amount of compressed bits required to encode a frequency table, which is the sum of the frequency of each byte multiplied by the length of its bit sequence.
+   * @param frequencies The frequency table of bytes, indexed by byte + 128.
+   * @return The amount of compressed bits, or -1 if a counted byte does not have a bit sequence.
+   */
+  public long cost(int[] frequencies) {
+    long bits = 0;
+
+    /** Index 256 does not belong to a byte, so it is never counted. */
+    for (int i = 0; i < Math.min(frequencies.length, 256); i++) {
+      int length = this.tree.getLength((byte) (i - 128));
+      if (frequencies[i] > 0 && length == 0) {
+        return -1;
+      }
+      bits += (long) frequencies[i] * length;
+    }
+
+    return bits;
+  }
+
+  /** Compresses a range of bytes, writing the bit sequence of each byte.
+   * @param src The buffer containing the bytes, which may be a direct or memory mapped buffer.
+   * @param offset The index of the first byte.
+   * @param length The amount of bytes.
+   * @param out The Bit Writer which receives the bit sequences.
+   */
+  public void encode(ByteBuffer src, int offset, int length, BitWriter out) {
+    for (int i = offset; i < offset + length; i++) {
+      byte b = src.get(i);
+      int size = this.tree.getLength(b);
+
+      if (size == 0) {
+        throw new IllegalArgumentException(String.format("Byte %d does not have a bit sequence", b));
+      }
+
+      out.write(this.codes[b + 128], size);
+    }
+  }
+
+  /** Decompresses bytes by traversing the Huffman Binary Tree from the root for every byte, following the right child for a 1 bit and the left child for a 0 bit until a leaf is reached.
+   * @param src The buffer containing the compressed bits, which may be a direct or memory mapped buffer.
+   * @param start The index of the byte containing the first compressed bit.
+   * @param dst The buffer which receives the decompressed bytes, which is advanced past the decompressed bytes.
+   * @param length The amount of bytes to be decompressed.
+   * @return The amount of compressed bits which were read.
+   */
+  public long decode(ByteBuffer src, int start, ByteBuffer dst, int length) {
+    BitReader in = new BitReader(src, start);
+    int position = dst.position(), end = position + length, batch = 56 / this.bits;
+
+    /** A refill loads at least 56 bits, which is enough for several lookups without refilling in between. */
+    while (position < end) {
+      in.refill();
+
+      for (int k = 0; k < batch && position < end; k++) {
+        int entry = this.lookup[(int) in.peek(this.bits)];
+
+        if (entry < 0) {
+          dst.put(position++, this.decode(in));
+          break;
+        }
+
+        in.skip(entry >>> 8);
+        dst.put(position++, (byte) entry);
+      }
+    }
+
+    dst.position(end);
+    return in.position() - (long) start * 8;
+  }
+
+  /** Decompresses a singular byte, reading its bit sequence from a Bit Reader. Bit sequences of at most 10 bits are decompressed using a singular lookup.
+   * @param in The Bit Reader containing the compressed bits.
+   * @return The decompressed byte.
+   */
+  public byte decode(BitReader in) {
+    in.refill();
+    int entry = this.lookup[(int) in.peek(this.bits)];
+
+    if (entry >= 0) {
+      in.skip(entry >>> 8);
+      return (byte) entry;
+    }
+
+    /** Bit sequences longer than the lookup table continue from the Node reached by the lookup, one bit at a time. */
+    in.skip(this.bits);
+    int node = ~entry;
+
+    while (!this.tree.isLeaf(node)) {
+      node = (in.read() == 1 ? this.tree.getRight(node) : this.tree.getLeft(node));
+    }
+
+    return this.tree.getSymbol(node);
+  }
+
+  /** A getter method which returns the length of the bit sequence of a byte.
+   * @param b The byte.
+   * @return The length of the bit sequence of the byte, or 0 if the byte does not have a bit sequence.
+   */
+  public int getLength(byte b) {
+    return this.tree.getLength(b);
+  }
+
+  /** A getter method which returns the bit sequence of a byte, within the lowest getLength() bits.
+   * @param b The byte.
+   * @return The bit sequence of the byte.
+   */
+  public long getCode(byte b) {
+    return this.codes[b + 128];
+  }
+
+  /** A method which builds a new Huffman Binary Tree equivalent to the Code Table, with the depth and bit sequence of each Node initialized. Changing the Tree does not change the Code Table.
+   * @return The Huffman Binary Tree.
+   */
+  public HuffmanTree<Byte> toTree() {
+    return this.tree.toTree();
+  }
+
+  /** A method that returns the bracket representation of the Huffman Binary Tree, as written within the header of a Block.
+   * @return The bracket representation of the Huffman Binary Tree.
+   */
+  @Override
+  public String toString() {
+    if (this.bracket == null) {
+      this.bracket = this.tree.toString();
+    }
+
+    return this.bracket;
+  }
+}
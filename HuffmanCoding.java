@@ -1,186 +1,790 @@
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
 
 /** A Huffman Coding Data Structure which compresses a File using the Huffman Coding Compression Algorithm.
  * @author Henry Wang
 */
 
 public class HuffmanCoding {
-  private String sequence, filename;
-  private HuffmanTree<Byte> encodingTree;
-  private int padding = 0;
+  private String filename;
+  /** blockSize: The maximum amount of bytes within each Block of the compressed File. A block size of 0 compresses the whole File as a singular Block. */
+  private int blockSize = 0;
+  /** matcher: The Match Finder used to replace repeated sequences of bytes within each Block, or null to only use Huffman Coding. */
+  private MatchFinder matcher = null;
+  /** transformer: The Burrows-Wheeler Transform used to rearrange the bytes of each Block, or null to not rearrange the bytes. */
+  private BurrowsWheeler transformer = null;
+  /** segmenter: The Segmenter used to split the File into Blocks where its frequency table changes, or null to split the File into Blocks of blockSize bytes. */
+  private Segmenter segmenter = null;
+  /** sampleRate: The fraction of windows sampled to build a singular Huffman Binary Tree for the whole File, or 0 to count every byte of every Block. */
+  private double sampleRate = 0;
+  /** The amount of bytes within each window sampled by sampleRate. */
+  public static final int SAMPLE_WINDOW = 1 << 16;
+  /** maxBufferBytes: The largest amount of memory which compressing a File may use for its buffers, independent of the maximum heap size. */
+  private long maxBufferBytes = Long.MAX_VALUE;
+  /** The smallest and largest amount of bytes within a Block chosen by streamFile(). */
+  private static final int MIN_STREAM_BLOCK = 1 << 12, MAX_STREAM_BLOCK = 1 << 30;
+  /** lengthLimit: The largest length of a bit sequence within the Huffman Binary Tree of a Block, or 0 for no limit.
+   *  reuse: Whether a Block may reuse the Huffman Binary Tree of a previous Block.
+   *  level: The compression level chosen by setLevel(), or 0 if the choices were made individually.
+   */
+  private int lengthLimit = 0, level = 0;
+  private boolean reuse = true;
+  /** The choices made by each compression level from 1 (fastest) to 9 (smallest output): the sample rate, the block size, whether Huffman Binary Trees are reused, the length limit, the level and window of the Match Finder (0 for none), whether the Burrows-Wheeler Transform is used, and whether Blocks are split where the bytes change. Levels 1 and 2 build a singular sampled Huffman Binary Tree, levels 3 and 4 build a Tree for every Block, levels 5 to 7 also replace repeated sequences, and levels 8 and 9 also try the Burrows-Wheeler Transform on larger Blocks. Levels 3 to 6 split Blocks where the bytes change, while levels 7 to 9 keep whole Blocks, since matches cannot cross Blocks and their larger windows find more distant matches. */
+  private static final double[] LEVEL_SAMPLE = {0.01, 0.05, 0, 0, 0, 0, 0, 0, 0};
+  private static final int[] LEVEL_BLOCK = {1 << 20, 1 << 20, 1 << 18, 1 << 17, 1 << 18, 1 << 18, 1 << 18, 1 << 20, 1 << 22};
+  private static final boolean[] LEVEL_REUSE = {true, true, false, true, true, true, true, true, true};
+  private static final int[] LEVEL_LIMIT = {0, 0, 10, 12, 15, 15, 0, 0, 0};
+  private static final int[] LEVEL_MATCH = {0, 0, 0, 0, 1, 4, 6, 9, 9};
+  private static final int[] LEVEL_WINDOW = {0, 0, 0, 0, 1 << 15, 1 << 16, 1 << 18, 1 << 20, 1 << 22};
+  private static final boolean[] LEVEL_TRANSFORM = {false, false, false, false, false, false, false, true, true};
+  private static final boolean[] LEVEL_SEGMENT = {false, false, true, true, true, true, false, false, false};
+  /** The amount of bytes read at a time by analyze(). */
+  private static final int ANALYSIS_CHUNK = 1 << 20;
   /** fileBytes: The bytes read from the input file.
-   *  byteSequence: The byte sequence for the compressed file.
+   *  blocks: The compressed Blocks of the input file.
    */
-  private byte[] byteSequence, fileBytes;
+  private byte[] fileBytes;
+  private ArrayList<HuffmanBlock> blocks = new ArrayList<HuffmanBlock>();
 
   /** A constructor which initializes a new Huffman Coding object. */
   public HuffmanCoding() {
-    this.encodingTree = null;
   }
 
   /** A constructor which reads, and compresses a File using the Huffman Coding Compression Method. 
    * @param fn The name of the file to be compressed
+   * @throws IOException If the File could not be read.
   */
-  public HuffmanCoding(String fn) {
+  public HuffmanCoding(String fn) throws IOException {
     this.compressFile(fn);
   }
 
-  /** A method which compresses a File using the Huffman Coding Compression Method. This is done through several other methods, used to generate the Huffman Binary Tree, and generate the byte sequence.
+  /** A constructor which reads, and compresses a File in Blocks using the Huffman Coding Compression Method.
+   * @param fn The name of the file to be compressed
+   * @param blockSize The maximum amount of bytes within each Block, or 0 to compress the File as a singular Block.
+   * @throws IOException If the File could not be read.
+  */
+  public HuffmanCoding(String fn, int blockSize) throws IOException {
+    this.blockSize = blockSize;
+    this.compressFile(fn);
+  }
+
+  /** A method which chooses every setting of the Huffman Coding from a compression level, trading speed for a smaller output. The settings may still be changed individually afterwards.
+   * @param level The level, between 1 (fastest) and 9 (smallest output).
+   */
+  public void setLevel(int level) {
+    int i = Math.max(1, Math.min(9, level)) - 1;
+
+    this.level = i + 1;
+    this.sampleRate = LEVEL_SAMPLE[i];
+    this.blockSize = LEVEL_BLOCK[i];
+    this.reuse = LEVEL_REUSE[i];
+    this.lengthLimit = LEVEL_LIMIT[i];
+    this.matcher = (LEVEL_MATCH[i] > 0 ? new MatchFinder(LEVEL_WINDOW[i], LEVEL_MATCH[i]) : null);
+    this.transformer = (LEVEL_TRANSFORM[i] ? new BurrowsWheeler() : null);
+    this.segmenter = (LEVEL_SEGMENT[i] ? new Segmenter() : null);
+  }
+
+  /** A method which compresses a File using the Huffman Coding Compression Method. The File is split into Blocks, and each Block is compressed using whichever method is expected to produce the smallest output.
    * @param fn The name of the file to be compressed.
+   * @throws IOException If the File could not be read, or became shorter while it was read.
   */
-  public void compressFile(String fn) {
+  public void compressFile(String fn) throws IOException {
     File f = new File(fn);
+    int size = (int) Math.max(this.blockSize > 0 ? Math.min(this.blockSize, f.length()) : f.length(), 1);
+
+    /** The whole File, its compressed Blocks and the buffers used to compress a singular Block are held at the same time. */
+    long required = f.length() + this.maxEncodedLength(f.length()) + this.workingMemory(size);
+    if (f.length() > Integer.MAX_VALUE - 8) {
+      throw new IllegalStateException(String.format("%s is too large to be compressed in memory; use streamFile() instead", fn));
+    } else if (required > this.maxBufferBytes) {
+      throw new IllegalStateException(String.format("Compressing %s in memory requires %d bytes, which exceeds the memory budget of %d bytes; use streamFile() instead", fn, required, this.maxBufferBytes));
+    }
+
     this.filename = fn;
     this.fileBytes = new byte[(int) f.length()];
+    this.blocks = new ArrayList<HuffmanBlock>();
 
-    /** Generates a frequency table of bytes from the File Input Stream. This frequency table is then used to generate the Binary Tree based on the weighting (prevalence) of different bytes. 
-     * Since bytes range from [-128, 127], a shift of 128 is applied to the index.
-    */
+    /** A singular read may return fewer bytes than requested, so the File is read until the array is full. */
     try (FileInputStream input = new FileInputStream(f)) {
-      input.read(this.fileBytes);
-      int[] freq = new int[257];
+      if (input.readNBytes(this.fileBytes, 0, this.fileBytes.length) < this.fileBytes.length) {
+        throw new EOFException(String.format("%s became shorter while it was read", fn));
+      }
+    }
+
+    HuffmanBlock previous = null;
+
+    if (this.sampleRate > 0) {
+      this.blocks = HuffmanCoding.sampled(ByteBuffer.wrap(this.fileBytes), size, this.sampleRate);
+      return;
+    }
 
-      /** Generate a frequency table for the bytes within the File.  */
-      for (int i = 0; i < this.fileBytes.length; i++) {
-        freq[(int) (this.fileBytes[i]) + 128]++;
+    /** Each Block generates its own frequency table, so that Blocks with different contents can use different methods and Huffman Binary Trees. A Block may instead reuse the most recent Huffman Binary Tree if that is cheaper than writing a new one. */
+    ArrayList<int[]> frequencies = new ArrayList<int[]>();
+    int[] lengths = this.split(ByteBuffer.wrap(this.fileBytes), 0, this.fileBytes.length, size, frequencies);
+    int offset = 0;
+
+    for (int i = 0; i < lengths.length; i++) {
+      HuffmanBlock block = new HuffmanBlock(this.fileBytes, offset, lengths[i], this.options(previous).setFrequencies(frequencies.isEmpty() ? null : frequencies.get(i)));
+      offset += lengths[i];
+      this.blocks.add(block);
+
+      if (block.getTable() != null && this.reuse) {
+        previous = block;
+      }
+    }
+  }
+
+  /** A method which compresses a File directly into its compressed File, one Block at a time, without holding the whole File or its compressed Blocks in memory. The block size is halved until the buffers required by a singular Block fit within the memory budget, so Files of any size, including Files larger than 2 GB, can be compressed with a fixed amount of memory. Sampling is not used, since it requires the whole File. The compressed File ends with a Block Index, so more bytes may later be appended using appendFile().
+   * @param fn The name of the file to be compressed.
+   * @return The file name of the compressed file, or an empty String if the File could not be compressed.
+   * @throws IllegalStateException If even a Block of 4096 bytes does not fit within the memory budget, in which case an existing compressed File is left unchanged.
+   */
+  public String streamFile(String fn) {
+    String out = HuffmanCoding.compressedName(fn);
+
+    try (FileChannel input = FileChannel.open(Paths.get(fn), StandardOpenOption.READ)) {
+      /** The block size is chosen before the compressed File is opened, so an existing compressed File is left unchanged if no Block fits within the memory budget. */
+      int size = this.streamBlockSize(input.size());
+
+      try (FileChannel output = FileChannel.open(Paths.get(out), StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        output.write(ByteBuffer.wrap(String.format("%s\r\n", fn).getBytes()));
+        this.stream(input, output, new BlockIndex(-1, 0, output.size()), size);
       }
 
-      this.initializeTree(freq);
-      this.bitSequence();
-      this.initializeBytes();
-    } catch (IOException e)  {
-      System.out.println(String.format("Could not read file: %s", fn));
+      this.filename = fn;
+      return out;
+    } catch (IOException e) {
+      System.out.println(String.format("Could not compress file: %s", fn));
     }
 
+    return "";
   }
 
-  /** Generates a Huffman Binary Tree of Bytes using a frequency table of Bytes.
-   * @param frequencies The frequency table of bytes.
+  /** A method which compresses only the bytes added to a growing File, such as a log File, since it was last compressed. The new bytes are compressed into new Blocks, which are appended to the existing compressed File along with a Block Index recording them, so each call takes time proportional to the amount of new bytes instead of the size of the File. If the compressed File does not exist, the whole File is compressed.
+   * The previous Block Index is not overwritten, so the compressed File remains valid until the new Block Index is written: the new Blocks are forced to storage first, and the Block Index, which ends the compressed File, is written afterwards. An incomplete Block left by an interrupted append is discarded by the next append.
+   * @param fn The name of the file to be compressed, whose previously compressed bytes must be unchanged.
+   * @return The file name of the compressed file, or an empty String if the File could not be compressed.
+   * @throws IllegalStateException If the File is shorter than the bytes which were already compressed, or a Block does not fit within the memory budget.
    */
-  private void initializeTree(int[] frequencies) {
-    /** If the frequency table does not exist, do not generate the Huffman Binary Tree. */
-    if (frequencies == null) {
-      return;
+  public String appendFile(String fn) {
+    String out = HuffmanCoding.compressedName(fn);
+
+    try (FileChannel input = FileChannel.open(Paths.get(fn), StandardOpenOption.READ);
+         FileChannel output = FileChannel.open(Paths.get(out), StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE)) {
+      if (output.size() == 0) {
+        output.write(ByteBuffer.wrap(String.format("%s\r\n", fn).getBytes()), 0);
+      }
+
+      BlockIndex index = BlockIndex.open(output);
+
+      if (input.size() < index.getLength()) {
+        throw new IllegalStateException(String.format("%s is shorter than the %d bytes which were already compressed", fn, index.getLength()));
+      }
+
+      output.truncate(index.getEnd());
+
+      /** If no bytes were added, the compressed File is left unchanged, unless its Blocks have not been indexed yet. */
+      if (input.size() > index.getLength() || index.getCount() > 0) {
+        this.stream(input, output, index, this.streamBlockSize(input.size() - index.getLength()));
+      }
+
+      this.filename = fn;
+      return out;
+    } catch (IOException e) {
+      System.out.println(String.format("Could not compress file: %s", fn));
     }
 
-    /** A Priority Queue is used to merge Binary Trees in order to generate the final Binary Tree.  */
-    PriorityQueue<HuffmanTree<Byte>> q = new PriorityQueue<HuffmanTree<Byte>>();
+    return "";
+  }
 
+  /** Compresses the bytes of a File following the bytes recorded by a Block Index, one Block of at most size bytes at a time. Each Block is written at the end of the compressed File and recorded by the Block Index, which is written once every Block was forced to storage. */
+  private void stream(FileChannel input, FileChannel output, BlockIndex index, int size) throws IOException {
+    long length = input.size();
+    ByteBuffer block = ByteBuffer.allocate(size), dst = ByteBuffer.allocate((int) HuffmanCoding.maxEncodedLength(size, size));
+    HuffmanBlock previous = null;
 
-    for (int i = 0; i < frequencies.length; i++) {
-      /** If the frequency of a Byte is more than 0, meaning that the Byte is found within the File, add a Binary Tree consisting of a singular Node to the Priority Queue, where the Priority of the Binary Tree is it's frequency. */
-      if (frequencies[i] > 0) {
-        HuffmanTree<Byte> node = new HuffmanTree<Byte>((byte) (i - 128));
-        q.reverse(node, frequencies[i]);
+    for (long position = index.getLength(); position < length; position += size) {
+      block.clear().limit((int) Math.min(size, length - position));
+      while (block.hasRemaining()) {
+        if (input.read(block, position + block.position()) < 0) {
+          break;
+        }
+      }
+      block.flip();
+
+      HuffmanBlock current = new HuffmanBlock(block, 0, block.limit(), this.options(previous));
+      dst.clear();
+      current.write(block, 0, dst);
+      dst.flip();
+
+      long offset = index.getEnd();
+      HuffmanCoding.write(output, dst, offset);
+      index.add(offset, block.limit());
+      index.setEnd(offset + dst.limit());
+
+      if (current.getTable() != null && this.reuse) {
+        previous = current;
       }
     }
 
-    /** Merge Binary Trees within the Priority Queue until only one Binary Tree remains within the Queue.*/
-    while (q.size() > 1) {
-      PriorityNode<HuffmanTree<Byte>> f = q.dequeueNode(), s = q.dequeueNode();
-      HuffmanTree<Byte> merged = f.getValue().mergeTree(s.getValue(), (byte) 0);
-      q.reverse(merged, f.getPriority() + s.getPriority());
-      this.encodingTree = merged;
+    output.force(false);
+    HuffmanCoding.write(output, index.toBuffer(), index.getEnd());
+    output.force(true);
+  }
+
+  /** Writes the remaining bytes of a buffer at a position within a File. */
+  static void write(FileChannel output, ByteBuffer src, long position) throws IOException {
+    long offset = position;
+    while (src.hasRemaining()) {
+      offset += output.write(src, offset);
     }
+  }
 
-    /** Assign the remaining Binary Trees within the Priority Queue to the Huffman Binary Tree. */
-    if (!q.isEmpty()) {
-      this.encodingTree = q.dequeue();
+  /** Chooses the block size used by streamFile(), starting from the block size of the Huffman Coding (or the whole File), and halving it until a Block fits within the memory budget. */
+  private int streamBlockSize(long length) {
+    long size = Math.max(1, Math.min(this.blockSize > 0 ? this.blockSize : length, MAX_STREAM_BLOCK));
+
+    while (size > MIN_STREAM_BLOCK && this.streamMemory((int) size) > this.maxBufferBytes) {
+      size = Math.max(MIN_STREAM_BLOCK, size / 2);
     }
 
-    if (this.encodingTree.getRoot().isLeaf()) {
-      this.encodingTree.getRoot().setSequence("0");
-    } else {
-      /** Update information about the depth and byte sequences of each value within the Huffman Binary Tree. */
-      this.encodingTree.setInfo();
+    if (this.streamMemory((int) size) > this.maxBufferBytes) {
+      throw new IllegalStateException(String.format("Compressing a Block of %d bytes requires %d bytes, which exceeds the memory budget of %d bytes", size, this.streamMemory((int) size), this.maxBufferBytes));
     }
+
+    return (int) size;
   }
 
-  /** A method that initializes the bit sequence for the compressed file, using the Huffman Binary Tree generated previously.  */
-  private void bitSequence() {
-    this.sequence = "";
+  /** Computes the memory used by streamFile() to compress a singular Block: the Block, its compressed bytes, and the working memory. */
+  private long streamMemory(int size) {
+    return size + HuffmanCoding.maxEncodedLength(size, size) + this.workingMemory(size);
+  }
 
-    /** If the encoding Binary Tree does not exist, don't proceed with the operations. */
-    if (this.encodingTree == null) {
-      return;
+  /** Estimates the largest amount of working memory used to compress a singular Block, besides the Block and its compressed bytes. A Match Finder keeps two ints per byte, which a MATCHED Block copies, along with its hash tables, and a Burrows-Wheeler Transform keeps the Block as ints, its Suffix Array, and at most as much again for the recursion and its symbols. */
+  private long workingMemory(int size) {
+    long memory = 4096;
+
+    if (this.matcher != null) {
+      memory += 16L * size + 4L * this.matcher.getWindow() + 4L * (1 << 16);
+    }
+
+    if (this.transformer != null) {
+      memory += 24L * size;
     }
 
-    /** Generate a Queue of Nodes to iterate through, to find the correct Node and bit sequence at every byte within the File.  */
-    PriorityQueue<HuffmanNode<Byte>> q = new PriorityQueue<HuffmanNode<Byte>>(), tmp = new PriorityQueue<HuffmanNode<Byte>>();
+    return memory;
+  }
+
+  /** A method which decompresses a compressed File, and writes the decompressed bytes to the name of the original File, within the directory of the compressed File. Both Files are memory mapped, so the compressed bytes are decoded in place and the decompressed bytes are not copied through the heap.
+   * @param fn The name of the compressed File.
+   * @return The file name of the decompressed File, or an empty String if the File could not be decompressed.
+   */
+  public static String decompressFile(String fn) {
+    try (FileChannel input = FileChannel.open(Paths.get(fn), StandardOpenOption.READ)) {
+      ByteBuffer src = input.map(FileChannel.MapMode.READ_ONLY, 0, input.size());
+      Path original = HuffmanCoding.decompressedPath(fn, HuffmanBlock.readLine(src));
+
+      try (FileChannel output = FileChannel.open(original, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        ByteBuffer dst = output.map(FileChannel.MapMode.READ_WRITE, 0, HuffmanCoding.decodedLength(src));
+        HuffmanCoding.decode(src, dst);
+      }
 
-    if (this.encodingTree.getRoot() != null) {
-      tmp.enqueue(this.encodingTree.getRoot());
+      return original.toString();
+    } catch (IOException e) {
+      System.out.println(String.format("Could not decompress file: %s", fn));
     }
 
-    while (!tmp.isEmpty()) {
-      HuffmanNode<Byte> node = tmp.dequeue();
+    return "";
+  }
 
-      if (node.isLeaf()) {
-	      q.enqueue(node, 0);
+  /** A method which compresses the remaining bytes of a buffer in Blocks, and writes the header and compressed bytes of each Block to another buffer. Both buffers may be direct or memory mapped buffers, and are read and written in place. A MemorySegment may be compressed without copying by passing MemorySegment.asByteBuffer().
+   * @param src The buffer containing the bytes to be compressed, which is advanced to its limit.
+   * @param dst The buffer which receives the compressed Blocks, which must have at least maxEncodedLength() bytes remaining.
+   * @param blockSize The maximum amount of bytes within each Block, or 0 to compress the bytes as a singular Block.
+   */
+  public static void encode(ByteBuffer src, ByteBuffer dst, int blockSize) {
+    HuffmanCoding.encode(src, dst, blockSize, null);
+  }
+
+  /** A method which compresses the remaining bytes of a buffer in Blocks, replacing repeated sequences of bytes within each Block using a Match Finder, and writes the header and compressed bytes of each Block to another buffer.
+   * @param src The buffer containing the bytes to be compressed, which is advanced to its limit.
+   * @param dst The buffer which receives the compressed Blocks, which must have at least maxEncodedLength() bytes remaining.
+   * @param blockSize The maximum amount of bytes within each Block, or 0 to compress the bytes as a singular Block.
+   * @param matcher The Match Finder used to find repeated sequences of bytes, or null to only use Huffman Coding. A Match Finder is not thread safe, so each thread requires its own.
+   */
+  public static void encode(ByteBuffer src, ByteBuffer dst, int blockSize, MatchFinder matcher) {
+    HuffmanCoding.encode(src, dst, blockSize, matcher, null);
+  }
+
+  /** A method which compresses the remaining bytes of a buffer in Blocks, replacing repeated sequences of bytes using a Match Finder or rearranging the bytes using a Burrows-Wheeler Transform within each Block, and writes the header and compressed bytes of each Block to another buffer.
+   * @param src The buffer containing the bytes to be compressed, which is advanced to its limit.
+   * @param dst The buffer which receives the compressed Blocks, which must have at least maxEncodedLength() bytes remaining.
+   * @param blockSize The maximum amount of bytes within each Block, or 0 to compress the bytes as a singular Block.
+   * @param matcher The Match Finder used to find repeated sequences of bytes, or null to not find repeated sequences.
+   * @param transformer The Burrows-Wheeler Transform used to rearrange the bytes, or null to not rearrange the bytes. Like a Match Finder, each thread requires its own.
+   */
+  public static void encode(ByteBuffer src, ByteBuffer dst, int blockSize, MatchFinder matcher, BurrowsWheeler transformer) {
+    int size = (blockSize > 0 ? blockSize : Math.max(src.remaining(), 1));
+    HuffmanBlock previous = null;
+
+    for (int offset = src.position(); offset < src.limit(); offset += size) {
+      HuffmanBlock block = new HuffmanBlock(src, offset, Math.min(size, src.limit() - offset), new HuffmanBlock.Options().setPrevious(previous).setMatcher(matcher).setTransformer(transformer));
+      block.write(src, offset, dst);
+
+      if (block.getTable() != null) {
+        previous = block;
       }
+    }
 
-      if (node.getRight() != null) {
-        tmp.enqueue(node.getRight());
+    src.position(src.limit());
+  }
+
+  /** A method which compresses the remaining bytes of a buffer in Blocks using every setting of this Huffman Coding, such as the settings chosen by setLevel(), and writes the header and compressed bytes of each Block to another buffer.
+   * @param src The buffer containing the bytes to be compressed, which is advanced to its limit.
+   * @param dst The buffer which receives the compressed Blocks, which must have at least maxEncodedLength() bytes remaining.
+   */
+  public void encode(ByteBuffer src, ByteBuffer dst) {
+    if (this.sampleRate > 0) {
+      HuffmanCoding.encodeSampled(src, dst, this.blockSize, this.sampleRate);
+      return;
+    }
+
+    int size = (this.blockSize > 0 ? this.blockSize : Math.max(src.remaining(), 1));
+    HuffmanBlock previous = null;
+
+    ArrayList<int[]> frequencies = new ArrayList<int[]>();
+    int offset = src.position();
+    int[] lengths = this.split(src, offset, src.remaining(), size, frequencies);
+
+    for (int i = 0; i < lengths.length; i++) {
+      HuffmanBlock block = new HuffmanBlock(src, offset, lengths[i], this.options(previous).setFrequencies(frequencies.isEmpty() ? null : frequencies.get(i)));
+      block.write(src, offset, dst);
+      offset += lengths[i];
+
+      if (block.getTable() != null && this.reuse) {
+        previous = block;
       }
+    }
 
-      if (node.getLeft() != null) {
-        tmp.enqueue(node.getLeft());
+    src.position(src.limit());
+  }
+
+  /** Returns the options of the next Block using the Match Finder, Burrows-Wheeler Transform and length limit of the compression level, which may reuse the Huffman Binary Tree of a previous Block. */
+  private HuffmanBlock.Options options(HuffmanBlock previous) {
+    return new HuffmanBlock.Options().setPrevious(previous).setMatcher(this.matcher).setTransformer(this.transformer).setLimit(this.lengthLimit);
+  }
+
+  /** Splits a range of bytes into the lengths of its Blocks: using the Segmenter if there is one, which also adds the frequency table of each Block to frequencies, and otherwise into Blocks of size bytes, which leaves frequencies empty. */
+  private int[] split(ByteBuffer data, int offset, int length, int size, List<int[]> frequencies) {
+    if (this.segmenter != null) {
+      return this.segmenter.split(data, offset, length, this.blockSize, frequencies);
+    }
+
+    int[] lengths = new int[(int) (((long) length + size - 1) / size)];
+    for (int i = 0; i < lengths.length; i++) {
+      lengths[i] = Math.min(size, length - i * size);
+    }
+
+    return lengths;
+  }
+
+  /** A method which compresses the remaining bytes of a buffer in Blocks using a singular Huffman Binary Tree, built from a stratified sample of the bytes instead of a frequency table of every byte. Each byte is then only read once, while it is compressed, which roughly halves the amount of bytes read for huge inputs at the cost of a slightly worse ratio. Match Finders and Burrows-Wheeler Transforms are not used.
+   * @param src The buffer containing the bytes to be compressed, which is advanced to its limit.
+   * @param dst The buffer which receives the compressed Blocks, which must have at least maxEncodedLength() bytes remaining.
+   * @param blockSize The maximum amount of bytes within each Block, or 0 to compress the bytes as a singular Block.
+   * @param rate The fraction of windows of SAMPLE_WINDOW bytes to be sampled, such as 0.01.
+   */
+  public static void encodeSampled(ByteBuffer src, ByteBuffer dst, int blockSize, double rate) {
+    int size = (blockSize > 0 ? blockSize : Math.max(src.remaining(), 1));
+    ArrayList<HuffmanBlock> blocks = HuffmanCoding.sampled(src, size, rate);
+
+    int offset = src.position();
+    for (HuffmanBlock block : blocks) {
+      block.write(src, offset, dst);
+      offset += block.getLength();
+    }
+
+    src.position(src.limit());
+  }
+
+  /** Compresses the remaining bytes of a buffer in Blocks using the Code Tables of a singular sample. A Block whose bytes were all sampled uses the Code Table of the sampled bytes only, and any other Block uses a Code Table which also has a bit sequence for every byte which was not sampled. A Block writes its Code Table unless the most recent Code Table written is the same. */
+  private static ArrayList<HuffmanBlock> sampled(ByteBuffer src, int size, double rate) {
+    int[] freq = HuffmanCodeTable.sampleFrequencies(src, src.position(), src.remaining(), rate, SAMPLE_WINDOW);
+    HuffmanCodeTable escaped = HuffmanCodeTable.escaped(freq), exact = null, written = null;
+    ArrayList<HuffmanBlock> blocks = new ArrayList<HuffmanBlock>();
+
+    int distinct = 0;
+    for (int i = 0; i < 256; i++) {
+      distinct += (freq[i] > 0 ? 1 : 0);
+    }
+    if (distinct >= 2 && distinct < 256) {
+      exact = HuffmanCodeTable.fromFrequencies(freq);
+    }
+
+    for (int offset = src.position(); offset < src.limit(); offset += size) {
+      int length = Math.min(size, src.limit() - offset);
+      HuffmanCodeTable table = (exact != null && exact.covers(src, offset, length) ? exact : escaped);
+      HuffmanBlock block = new HuffmanBlock(src, offset, length, table, table == written);
+      blocks.add(block);
+
+      if (block.getTable() != null) {
+        written = block.getTable();
       }
     }
 
-    /** Iterates through every byte within the original File to find the corresponding bit sequence of the representative Node within the Huffman Binary Tree, and appends that to the bit sequence String.  */
-    for (int i = 0; i < fileBytes.length; i++) {
-      for (int k = 0; k < q.size(); k++) {
-        if (q.get(k).getValue() == fileBytes[i] && q.get(k).isLeaf()) {
-          this.sequence += q.get(k).getSequence();
-          break;
+    return blocks;
+  }
+
+  /** A method which decompresses the remaining Blocks of a buffer, and writes the decompressed bytes to another buffer. Both buffers may be direct or memory mapped buffers, and are read and written in place. A MemorySegment may be decompressed without copying by passing MemorySegment.asByteBuffer().
+   * @param src The buffer containing the compressed Blocks, which is advanced to its limit.
+   * @param dst The buffer which receives the decompressed bytes, which must have at least decodedLength() bytes remaining.
+   */
+  public static void decode(ByteBuffer src, ByteBuffer dst) {
+    HuffmanCodeTable previous = null;
+
+    while (src.hasRemaining()) {
+      previous = HuffmanBlock.decode(src, dst, previous);
+    }
+  }
+
+  /** A stateless method which compresses the remaining bytes of a buffer using a shared Code Table, writing only the compressed bits. No header is written, so the caller must keep the amount of compressed bytes. Since the Code Table is immutable, any amount of threads may call this method with the same Code Table at the same time.
+   * @param table The Code Table, which must have a bit sequence for every byte to be compressed.
+   * @param src The buffer containing the bytes to be compressed, which is advanced to its limit.
+   * @param dst The buffer which receives the compressed bits, padded with zeros to a whole byte.
+   * @return The amount of padding bits after the compressed bits.
+   */
+  public static int encode(HuffmanCodeTable table, ByteBuffer src, ByteBuffer dst) {
+    BitWriter out = new BitWriter(dst);
+    table.encode(src, src.position(), src.remaining(), out);
+    src.position(src.limit());
+    return out.flush();
+  }
+
+  /** A stateless method which decompresses bytes compressed by encode(HuffmanCodeTable, ByteBuffer, ByteBuffer) using the same shared Code Table, until the destination buffer is full. Any amount of threads may call this method with the same Code Table at the same time.
+   * @param table The Code Table used to compress the bytes.
+   * @param src The buffer containing the compressed bits, which is advanced past the compressed bytes which were read.
+   * @param dst The buffer which receives the decompressed bytes, which is advanced to its limit.
+   */
+  public static void decode(HuffmanCodeTable table, ByteBuffer src, ByteBuffer dst) {
+    long bits = table.decode(src, src.position(), dst, dst.remaining());
+    src.position(src.position() + (int) ((bits + 7) / 8));
+  }
+
+  /** A method which returns the largest amount of bytes that encode() can write when compressing a given amount of bytes. A Block is only compressed if it is smaller than the Block itself, so each Block adds at most the size of its header.
+   * @param length The amount of bytes to be compressed.
+   * @param blockSize The maximum amount of bytes within each Block, or 0 to compress the bytes as a singular Block.
+   * @return The largest amount of compressed bytes.
+   */
+  public static long maxEncodedLength(long length, int blockSize) {
+    long blocks = (blockSize > 0 ? (length + blockSize - 1) / blockSize : (length > 0 ? 1 : 0));
+    return length + blocks * 48;
+  }
+
+  /** A method which returns the largest amount of bytes that encode() can write when compressing a given amount of bytes using the settings of this Huffman Coding. A Segmenter may start a new Block at every window besides the Blocks of blockSize bytes, so each window may add another header.
+   * @param length The amount of bytes to be compressed.
+   * @return The largest amount of compressed bytes.
+   */
+  public long maxEncodedLength(long length) {
+    long bound = HuffmanCoding.maxEncodedLength(length, this.blockSize);
+    return (this.segmenter != null ? bound + (length / this.segmenter.getWindow()) * 48 : bound);
+  }
+
+  /** A method which returns the amount of decompressed bytes within the remaining Blocks of a buffer, by reading the header of each Block. The position of the buffer is not changed.
+   * @param src The buffer containing the compressed Blocks.
+   * @return The amount of decompressed bytes.
+   */
+  public static long decodedLength(ByteBuffer src) {
+    ByteBuffer blocks = src.duplicate();
+    long length = 0;
+
+    while (blocks.hasRemaining()) {
+      String[] header = HuffmanBlock.readLine(blocks).split(" ", 5);
+      length += Integer.parseInt(header[1]);
+      blocks.position(blocks.position() + Integer.parseInt(header[3]));
+    }
+
+    return length;
+  }
+
+  /** A method which predicts the size of a File compressed as a singular Block by compressFile() and writeToFile(), without compressing it. Only the frequency table and the Huffman Binary Tree are built, so the File is read once in large chunks at the speed of reading the File, and no compressed bytes are held in memory. The exact amount of compressed bits is the sum of the frequency of each byte multiplied by the length of its bit sequence. Files of any size may be analyzed, including Files larger than 2 GB.
+   * @param path The path of the File.
+   * @return The Analysis of the File.
+   * @throws IOException If the File could not be read.
+   */
+  public static Analysis analyze(Path path) throws IOException {
+    long start = System.nanoTime(), length = 0;
+    long[] counts = new long[256];
+    ByteBuffer chunk = ByteBuffer.allocateDirect(ANALYSIS_CHUNK), sample = null;
+
+    try (FileChannel input = FileChannel.open(path, StandardOpenOption.READ)) {
+      while (input.read(chunk) >= 0) {
+        chunk.flip();
+        int[] freq = HuffmanBlock.frequencies(chunk, 0, chunk.limit());
+
+        for (int i = 0; i < 256; i++) {
+          counts[i] += freq[i];
         }
+
+        /** The first bytes are kept, so the time required to compress the File can be estimated afterwards. */
+        if (sample == null) {
+          sample = ByteBuffer.allocate(Math.min(chunk.limit(), SAMPLE_WINDOW));
+          sample.put(0, chunk, 0, sample.capacity());
+        }
+
+        length += chunk.limit();
+        chunk.clear();
       }
     }
 
-    /** Determines the padding required to ensure that a whole number of bits is written to the compressed File. */
-    this.padding = (8 - (this.sequence.length()%8)) % 8;
+    long elapsed = System.nanoTime() - start;
+    int distinct = 0;
+    long largest = 0;
+    double entropy = 0;
+
+    for (long count : counts) {
+      if (count > 0) {
+        double p = (double) count / length;
+        entropy -= p * Math.log(p) / Math.log(2);
+        distinct++;
+      }
+      largest = Math.max(largest, count);
+    }
+
+    if (distinct == 0) {
+      return new Analysis(path, 0, HuffmanBlock.STORED, 0, 0, "", 0, elapsed, elapsed);
+    } else if (distinct == 1) {
+      int symbol = 0;
+      while (counts[symbol] == 0) {
+        symbol++;
+      }
+      return new Analysis(path, length, HuffmanBlock.RUN, 0, 0, Integer.toString((symbol - 128) & 0xff), entropy, elapsed, elapsed);
+    }
+
+    /** The frequencies only fit within an int for Files smaller than 2 GB, so larger frequencies are scaled down, keeping a frequency of at least 1 for every counted byte. */
+    int shift = 0;
+    while ((largest >> shift) > Integer.MAX_VALUE / 2) {
+      shift++;
+    }
+
+    int[] freq = new int[257];
+    for (int i = 0; i < 256; i++) {
+      freq[i] = (counts[i] > 0 ? (int) Math.max(1, counts[i] >> shift) : 0);
+    }
+
+    HuffmanCodeTable table = HuffmanCodeTable.fromFrequencies(freq);
+    long bits = 0;
+
+    for (int i = 0; i < 256; i++) {
+      bits += counts[i] * table.getLength((byte) (i - 128));
+    }
+
+    /** The Block is stored in the same cases as HuffmanBlock: if the lower bound given by the entropy is not smaller than the File, or the compressed bits and the Huffman Binary Tree are not smaller than the File. */
+    double estimate = entropy * length / 8 + (4 * distinct - 3);
+    String bracket = table.toString();
 
-    for (int i = 0; i < this.padding; i++) {
-      this.sequence += '0';
+    if (estimate >= length || (bits + 7) / 8 + bracket.length() >= length) {
+      return new Analysis(path, length, HuffmanBlock.STORED, bits, length, "-", entropy, elapsed, elapsed);
     }
+
+    /** The time required to compress the File is the time taken to read it, plus the time taken to compress the sample bytes, scaled to the length of the File. */
+    long encodeStart = System.nanoTime();
+    table.encode(sample, 0, sample.capacity(), new BitWriter(sample.capacity()));
+    long estimated = elapsed + (long) ((double) (System.nanoTime() - encodeStart) * length / sample.capacity());
+
+    return new Analysis(path, length, HuffmanBlock.HUFFMAN, bits, (bits + 7) / 8, bracket, entropy, elapsed, estimated);
+  }
+
+  /** Generates a Huffman Binary Tree of Bytes using a frequency table of Bytes. The Tree is built as a Compact Huffman Tree, without a Huffman Node or String per merge, and then converted into Huffman Nodes with the depth and bit sequence of each Node initialized.
+   * @param frequencies The frequency table of bytes.
+   * @return The Huffman Binary Tree, or null if the frequency table is empty.
+   */
+  static HuffmanTree<Byte> initializeTree(int[] frequencies) {
+    CompactHuffmanTree tree = CompactHuffmanTree.fromFrequencies(frequencies);
+    return (tree != null ? tree.toTree() : null);
+  }
+
+  /** A getter method which returns the compressed Blocks of the File.
+   * @return The compressed Blocks of the File.
+   */
+  public ArrayList<HuffmanBlock> getBlocks() {
+    return this.blocks;
+  }
+
+  /** A getter method which returns the maximum amount of bytes within each Block.
+   * @return The maximum amount of bytes within each Block, or 0 if the File is compressed as a singular Block.
+   */
+  public int getBlockSize() {
+    return this.blockSize;
+  }
+
+  /** A setter method which redefines the maximum amount of bytes within each Block. This applies to Files compressed afterwards.
+   * @param blockSize The maximum amount of bytes within each Block, or 0 to compress the File as a singular Block.
+   */
+  public void setBlockSize(int blockSize) {
+    this.blockSize = blockSize;
+  }
+
+  /** A getter method which returns the Match Finder used to replace repeated sequences of bytes.
+   * @return The Match Finder, or null if only Huffman Coding is used.
+   */
+  public MatchFinder getMatcher() {
+    return this.matcher;
   }
 
-  /** Initializes the Bytes to be written within the compressed File.  */
-  private void initializeBytes() {
-    this.byteSequence = new byte[(this.sequence.length()/8)];
+  /** A setter method which redefines the Match Finder used to replace repeated sequences of bytes. This applies to Files compressed afterwards.
+   * @param matcher The Match Finder, or null to only use Huffman Coding.
+   */
+  public void setMatcher(MatchFinder matcher) {
+    this.matcher = matcher;
+  }
 
-    /** Each Byte corresponds to 8 Bits, which is computed within this For Loop. */
-    for (int i = 0; i < this.sequence.length(); i++) {
-      byteSequence[i/8] = (byte) ((byteSequence[i/8] << 1) + (this.sequence.charAt(i) == '1' ? 1 : 0));
+  /** A getter method which returns the Burrows-Wheeler Transform used to rearrange the bytes of each Block.
+   * @return The Burrows-Wheeler Transform, or null if the bytes are not rearranged.
+   */
+  public BurrowsWheeler getTransformer() {
+    return this.transformer;
+  }
+
+  /** A setter method which redefines the Burrows-Wheeler Transform used to rearrange the bytes of each Block. This applies to Files compressed afterwards.
+   * @param transformer The Burrows-Wheeler Transform, or null to not rearrange the bytes.
+   */
+  public void setTransformer(BurrowsWheeler transformer) {
+    this.transformer = transformer;
+  }
+
+  /** A getter method which returns the Segmenter used to split the File into Blocks where its frequency table changes.
+   * @return The Segmenter, or null if the File is split into Blocks of blockSize bytes.
+   */
+  public Segmenter getSegmenter() {
+    return this.segmenter;
+  }
+
+  /** A setter method which redefines the Segmenter used to split the File into Blocks where its frequency table changes. The block size remains the largest Block, or there is no largest Block if the block size is 0. This applies to Files compressed afterwards using compressFile() or encode(), but not streamFile(), which reads one Block at a time.
+   * @param segmenter The Segmenter, or null to split the File into Blocks of blockSize bytes.
+   */
+  public void setSegmenter(Segmenter segmenter) {
+    this.segmenter = segmenter;
+  }
+
+  /** A getter method which returns the fraction of windows sampled to build a singular Huffman Binary Tree for the whole File.
+   * @return The sample rate, or 0 if every byte of every Block is counted.
+   */
+  public double getSampleRate() {
+    return this.sampleRate;
+  }
+
+  /** A setter method which redefines the fraction of windows sampled to build a singular Huffman Binary Tree for the whole File. Sampling replaces the frequency table of each Block, along with the Match Finder and Burrows-Wheeler Transform. This applies to Files compressed afterwards.
+   * @param sampleRate The fraction of windows of SAMPLE_WINDOW bytes to be sampled, such as 0.01, or 0 to count every byte of every Block.
+   */
+  public void setSampleRate(double sampleRate) {
+    this.sampleRate = sampleRate;
+  }
+
+  /** A getter method which returns the largest amount of memory which compressing a File may use for its buffers.
+   * @return The memory budget in bytes, which is Long.MAX_VALUE unless it was defined.
+   */
+  public long getMaxBufferBytes() {
+    return this.maxBufferBytes;
+  }
+
+  /** A setter method which redefines the largest amount of memory which compressing a File may use for its buffers. compressFile() throws an IllegalStateException if the File does not fit within the budget, instead of running out of memory, and streamFile() chooses a block size which fits within the budget.
+   * @param maxBufferBytes The memory budget in bytes.
+   */
+  public void setMaxBufferBytes(long maxBufferBytes) {
+    this.maxBufferBytes = maxBufferBytes;
+  }
+
+  /** A getter method which returns the compression level chosen by setLevel().
+   * @return The level between 1 and 9, or 0 if no level was chosen.
+   */
+  public int getLevel() {
+    return this.level;
+  }
+
+  /** A getter method which returns the largest length of a bit sequence within the Huffman Binary Tree of a Block.
+   * @return The length limit, or 0 if there is no limit.
+   */
+  public int getLengthLimit() {
+    return this.lengthLimit;
+  }
+
+  /** A setter method which redefines the largest length of a bit sequence within the Huffman Binary Tree of a Block. Bit sequences of at most 10 bits are decompressed using a singular lookup, so a low limit decompresses faster at the cost of a slightly larger output. The limit does not apply to sampled Trees, nor to the Trees of MATCHED and TRANSFORMED Blocks. This applies to Files compressed afterwards.
+   * @param lengthLimit The length limit, between 8 and 63, or 0 for no limit.
+   */
+  public void setLengthLimit(int lengthLimit) {
+    if (lengthLimit != 0 && (lengthLimit < 8 || lengthLimit > 63)) {
+      throw new IllegalArgumentException(String.format("The length limit must be 0 or between 8 and 63, not %d", lengthLimit));
     }
+
+    this.lengthLimit = lengthLimit;
+  }
+
+  /** A getter method which returns whether a Block may reuse the Huffman Binary Tree of a previous Block.
+   * @return Whether Huffman Binary Trees are reused.
+   */
+  public boolean getReuse() {
+    return this.reuse;
+  }
+
+  /** A setter method which redefines whether a Block may reuse the Huffman Binary Tree of a previous Block. Without reuse, every Block writes its own Tree, which avoids computing the cost of the previous Tree. This applies to Files compressed afterwards.
+   * @param reuse Whether Huffman Binary Trees are reused.
+   */
+  public void setReuse(boolean reuse) {
+    this.reuse = reuse;
   }
 
-  /** A getter method which returns the bytes written to the compressed File.
-   * @return The bytes written to the compressed File.
+  /** A getter method which returns the first Block of the File, which is the whole File unless a block size is defined.
+   * @return The first Block of the File, or null if the File is empty.
+   */
+  private HuffmanBlock first() {
+    return (this.blocks.isEmpty() ? null : this.blocks.get(0));
+  }
+
+  /** A getter method which returns the compressed bytes of the first Block, which is the whole File unless a block size is defined.
+   * @return The compressed bytes of the first Block.
    */
   public byte[] getBytes() {
-    return this.byteSequence;
+    return (this.first() != null ? this.first().getBytes() : null);
   }
 
-  /** A getter method that returns the amount of padding within the compressed File.
-   * @return The amount of padding within the compressed File.
+  /** A getter method that returns the amount of padding within the first Block, which is the whole File unless a block size is defined.
+   * @return The amount of padding within the first Block.
    */
   public int getPadding() {
-    return this.padding;
+    return (this.first() != null ? this.first().getPadding() : 0);
   }
 
-  /** A getter method which returns a String representation of the bit sequence written to the compressed File.
-   * @return The String representation of the bit sequence written to the compressed File.
+  /** A getter method which returns a String representation of the bit sequence of the first Block, which is the whole File unless a block size is defined.
+   * @return The String representation of the bit sequence of the first Block.
    */
   public String getSequence() {
-    return this.sequence;
+    if (this.first() == null) {
+      return null;
+    }
+
+    byte[] bytes = this.first().getBytes();
+    StringBuilder sequence = new StringBuilder(bytes.length * 8);
+
+    for (int i = 0; i < bytes.length * 8; i++) {
+      sequence.append((bytes[i/8] >> (7 - i%8) & 1) == 1 ? '1' : '0');
+    }
+
+    return sequence.toString();
   }
 
-  /** A method which computes the bit sequences for each Node within the Huffman Binary Tree, and returns them as a String. 
+  /** A method which computes the bit sequences for each Node within the Huffman Binary Tree of the first Block, and returns them as a String. 
    * @return A String which depicts the bit sequences for each Huffman Node within the Huffman Binary Tree.
   */
   public String getMappings() {
@@ -189,8 +793,8 @@ public class HuffmanCoding {
     /** Once again, this algorithm uses BFS to visit each Node within a Binary Tree. */
     PriorityQueue<HuffmanNode<Byte>> q = new PriorityQueue<HuffmanNode<Byte>>();
 
-    if (this.encodingTree.getRoot() != null) {
-      q.enqueue(this.encodingTree.getRoot());
+    if (this.first() != null && this.first().getTable() != null) {
+      q.enqueue(this.first().getTable().toTree().getRoot());
     }
 
     while (!q.isEmpty()) {
@@ -216,52 +820,60 @@ public class HuffmanCoding {
     return maps;
   }
 
-  /** A method that returns a String bracket representation of the Huffman Binary Tree. The method uses a DFS-like recursive algorithm.
-   * @return A String representation of the Huffman Binary Tree.
+  /** A method which finds the path of the decompressed File from the name stored within a compressed File. The stored name comes from the compressed File, which may have been written elsewhere or altered, so only its last component is kept, and it is placed within the directory of the compressed File. A name which would overwrite the compressed File, or leave the directory, is refused.
+   * @param fn The name of the compressed File.
+   * @param original The name of the original File, as stored within the compressed File.
+   * @return The path of the decompressed File.
+   * @throws IOException If the stored name has no usable last component, or would overwrite the compressed File.
    */
-  public String toString(HuffmanNode<Byte> node) {
-    if (node == null) {
-      return null;
+  static Path decompressedPath(String fn, String original) throws IOException {
+    Path input = Paths.get(fn), name;
+
+    try {
+      name = Paths.get(original).getFileName();
+    } catch (InvalidPathException e) {
+      throw new IOException(String.format("Invalid file name within %s: %s", fn, original), e);
+    }
+
+    if (name == null || name.toString().isEmpty() || name.toString().equals(".") || name.toString().equals("..")) {
+      throw new IOException(String.format("Invalid file name within %s: %s", fn, original));
     }
 
-    /** If the current Node has two children, find the String representation of each child Node. */
-    if (node.children() == 2) {
-      String R = (!node.getRight().isLeaf() ? this.toString(node.getRight()) : Integer.toString((int) node.getRight().getValue() + (node.getRight().getValue() < 0 ? 2 << 7 : 0)));
-      String L = (!node.getLeft().isLeaf() ? this.toString(node.getLeft()) : Integer.toString((int) node.getLeft().getValue() + (node.getLeft().getValue() < 0 ? 2 << 7 : 0)));
+    Path output = input.resolveSibling(name);
 
-      return String.format("(%s %s)", L, R);
-    /** If the current Node has no children, find the String representation of the child Node. */
-    } else if (node.children() == 1) {
-      return String.format("(%s)", (node.getLeft() != null ? this.toString(node.getLeft()) : this.toString(node.getRight())));
+    if (output.toAbsolutePath().normalize().equals(input.toAbsolutePath().normalize()) || (Files.exists(output) && Files.isSameFile(output, input))) {
+      throw new IOException(String.format("Decompressing %s would overwrite it", fn));
     }
 
-    return node.toString();
+    return output;
+  }
+
+  /** A method that returns a String bracket representation of the Huffman Binary Tree. The method uses a DFS-like recursive algorithm.
+   * @return A String representation of the Huffman Binary Tree.
+   */
+  public String toString(HuffmanNode<Byte> node) {
+    return HuffmanBlock.bracket(node);
   }
 
   /** A method that writes to the compressed File, and returns the file name of the compressed file. 
    * @return The file name of the compressed File.
    */
   public String writeToFile() {
-    if (this.sequence == null) {
+    if (this.filename == null) {
       return "";
     }
 
-    /** Find the name of the compressed file by stripping the current extension and adding .MZIP as a suffix. */
-    String fn = this.filename.substring(0, this.filename.lastIndexOf('.')+1) + "MZIP";
+    String fn = HuffmanCoding.compressedName(this.filename);
 
-    try {
-      /** Writes the required information to the compressed File as bytes. */
-      FileOutputStream out = new FileOutputStream(fn, false);
+    try (FileOutputStream out = new FileOutputStream(fn, false)) {
+      /** Writes the name of the original file, followed by the header and compressed bytes of each Block. */
+      out.write(String.format("%s\r\n", this.filename).getBytes());
 
-      /** Converts the required information (filename, bracket representation, padding) to bytes. */
-      out.write((String.format("%s\r\n%s\r\n%d\r\n", this.filename, this.toString(), (byte) (this.padding)).getBytes()));
-
-      for (int i = 0; i < this.byteSequence.length; i++) {
-        out.write(this.byteSequence[i]);
+      for (HuffmanBlock block : this.blocks) {
+        out.write(block.getHeader().getBytes());
+        out.write(block.getBytes());
       }
 
-      out.close();
-
       return fn;
     } catch (Exception e) {
       System.out.println(String.format("Could not write to file: %s", fn));
@@ -270,10 +882,128 @@ public class HuffmanCoding {
     return "";
   }
 
-  /** A method that returns a String bracket representation of the Huffman Binary Tree. If the Binary Tree isn't defined, the method will return null;
+  /** A method which finds the name of the compressed file by stripping the current extension and adding .MZIP as a suffix.
+   * @param fn The name of the file to be compressed.
+   * @return The name of the compressed file.
+   */
+  public static String compressedName(String fn) {
+    return fn.substring(0, fn.lastIndexOf('.')+1) + "MZIP";
+  }
+
+  /** A method that returns a String bracket representation of the Huffman Binary Tree of the first Block. If the Binary Tree isn't defined, the method will return null;
    * @return A String representation of the Huffman Binary Tree.
   */
   public String toString() {
-    return (this.encodingTree.getRoot() != null ? this.toString(this.encodingTree.getRoot()) : null);
+    return (this.first() != null && this.first().getTable() != null ? this.first().getTable().toString() : null);
+  }
+
+  /** The Analysis of a File, which predicts the size of the File compressed as a singular Block by compressFile() and writeToFile(). */
+  public static class Analysis {
+    private final Path path;
+    private final long length, bits, size, nanos, estimatedNanos;
+    private final char mode;
+    private final String table;
+    private final double entropy;
+
+    /** A constructor which initializes the Analysis of a File.
+     * @param path The path of the File.
+     * @param length The amount of bytes within the File.
+     * @param mode The method which would be used to compress the File.
+     * @param bits The exact amount of bits of the File compressed using its Huffman Binary Tree.
+     * @param size The amount of compressed bytes written after the header of the Block.
+     * @param table The representation of the Huffman Binary Tree or repeated byte written within the header of the Block.
+     * @param entropy The Shannon entropy of the bytes, in bits per byte.
+     * @param nanos The amount of nanoseconds taken by the Analysis.
+     * @param estimatedNanos The estimated amount of nanoseconds required to compress the File.
+     */
+    public Analysis(Path path, long length, char mode, long bits, long size, String table, double entropy, long nanos, long estimatedNanos) {
+      this.path = path;
+      this.length = length;
+      this.mode = mode;
+      this.bits = bits;
+      this.size = size;
+      this.table = table;
+      this.entropy = entropy;
+      this.nanos = nanos;
+      this.estimatedNanos = estimatedNanos;
+    }
+
+    /** A getter method which returns the amount of bytes within the File.
+     * @return The amount of bytes within the File.
+     */
+    public long getLength() {
+      return this.length;
+    }
+
+    /** A getter method which returns the method which would be used to compress the File.
+     * @return STORED, RUN or HUFFMAN.
+     */
+    public char getMode() {
+      return this.mode;
+    }
+
+    /** A getter method which returns the exact amount of bits of the File compressed using its Huffman Binary Tree, which is the sum of the frequency of each byte multiplied by the length of its bit sequence.
+     * @return The amount of compressed bits, or 0 if the File has less than two distinct bytes.
+     */
+    public long getBits() {
+      return this.bits;
+    }
+
+    /** A getter method which returns the Shannon entropy of the bytes of the File, which is a lower bound on the bits per byte of any compression which only uses the frequency of each byte.
+     * @return The entropy, in bits per byte.
+     */
+    public double getEntropy() {
+      return this.entropy;
+    }
+
+    /** A getter method which returns the amount of bytes written besides the compressed bytes: the name of the original File and the header of the Block, which includes the Huffman Binary Tree. An empty File does not have any Blocks.
+     * @return The amount of header bytes.
+     */
+    public long getHeaderSize() {
+      long header = String.format("%s\r\n", this.path).getBytes().length;
+
+      if (this.length == 0) {
+        return header;
+      }
+
+      long padding = (this.mode == HuffmanBlock.HUFFMAN ? this.size * 8 - this.bits : 0);
+      return header + String.format("%c %d %d %d %s\r\n", this.mode, this.length, padding, this.size, this.table).length();
+    }
+
+    /** A getter method which returns the amount of compressed bytes written after the header of the Block.
+     * @return The amount of compressed bytes.
+     */
+    public long getSize() {
+      return this.size;
+    }
+
+    /** A getter method which returns the size of the compressed File, including the headers.
+     * @return The amount of bytes within the compressed File.
+     */
+    public long getCompressedSize() {
+      return this.getHeaderSize() + this.size;
+    }
+
+    /** A getter method which returns the amount of nanoseconds taken by the Analysis.
+     * @return The amount of nanoseconds.
+     */
+    public long getNanos() {
+      return this.nanos;
+    }
+
+    /** A getter method which returns the estimated amount of nanoseconds required to compress the File, which is the time taken to read the File plus the time taken to compress its first bytes, scaled to the length of the File.
+     * @return The estimated amount of nanoseconds.
+     */
+    public long getEstimatedNanos() {
+      return this.estimatedNanos;
+    }
+
+    /** Overrides the built-in toString() method to return a String representation of the Analysis.
+     * @return The String representation of the Analysis.
+     */
+    @Override
+    public String toString() {
+      return String.format("%s: %d bytes -> %d bytes (%c), entropy %.3f bits per byte, analyzed in %.1f ms, compresses in about %.1f ms", this.path, this.length, this.getCompressedSize(), this.mode, this.entropy, this.nanos / 1e6, this.estimatedNanos / 1e6);
+    }
   }
 }
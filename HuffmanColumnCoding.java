@@ -0,0 +1,135 @@
+import java.nio.ByteBuffer;
+
+/** A Huffman Coding of columns of long values, such as sorted timestamps or identifiers. Byte level Huffman Coding barely compresses such values, since consecutive values share their high bytes but rarely their low bytes. Instead, each value is replaced by the difference from the previous value, which is small for sorted values, and then:
+ * 1. The difference is mapped to a non negative integer using a zigzag transform (0, -1, 1, -2, 2, ... become 0, 1, 2, 3, 4, ...).
+ * 2. The bucket of the integer, which is its amount of significant bits, is compressed using a Huffman Binary Tree.
+ * 3. The bits below the most significant bit are written as is, since the most significant bit is implied by the bucket.
+ * This is the same method DEFLATE uses for lengths and distances, where the bucket is the length code and the remaining bits are extra bits.
+ * @author Henry Wang
+ */
+public class HuffmanColumnCoding {
+  /** Values are compressed without per value allocations, so the class only consists of static methods. */
+  private HuffmanColumnCoding() {
+  }
+
+  /** A method which compresses an array of values.
+   * @param values The values to be compressed.
+   * @return The compressed bytes.
+   */
+  public static byte[] encode(long[] values) {
+    ByteBuffer dst = ByteBuffer.allocate(HuffmanColumnCoding.maxEncodedLength(values.length));
+    HuffmanColumnCoding.encode(values, 0, values.length, dst);
+    byte[] bytes = new byte[dst.position()];
+    dst.flip().get(bytes);
+    return bytes;
+  }
+
+  /** A method which decompresses an array of values compressed by encode().
+   * @param src The compressed bytes.
+   * @return The decompressed values.
+   */
+  public static long[] decode(byte[] src) {
+    ByteBuffer in = ByteBuffer.wrap(src);
+    long[] values = new long[HuffmanColumnCoding.length(in)];
+    HuffmanColumnCoding.decode(in, values, 0);
+    return values;
+  }
+
+  /** A method which compresses a range of values, and writes a header followed by the compressed bits to a buffer. The header consists of the amount of values, followed by either the bracket representation of the Huffman Binary Tree of the buckets or, if every value has the same bucket, R followed by that bucket.
+   * @param values The values to be compressed.
+   * @param offset The index of the first value.
+   * @param length The amount of values.
+   * @param dst The buffer which receives the compressed bytes, which must have at least maxEncodedLength() bytes remaining.
+   */
+  public static void encode(long[] values, int offset, int length, ByteBuffer dst) {
+    /** The buckets are counted within the byte frequency table used by the Huffman Coding Compression Method, where bucket b is counted as byte b. */
+    int[] freq = new int[257];
+    long previous = 0;
+    int distinct = 0, bucket = 0;
+
+    for (int i = offset; i < offset + length; i++) {
+      int b = HuffmanColumnCoding.bucket(values[i] - previous);
+      previous = values[i];
+
+      if (freq[b + 128]++ == 0) {
+        distinct++;
+        bucket = b;
+      }
+    }
+
+    HuffmanCodeTable table = (distinct > 1 ? HuffmanCodeTable.fromFrequencies(freq) : null);
+    dst.put(String.format("%d %s\r\n", length, (table != null ? table.toString() : "R " + bucket)).getBytes());
+
+    BitWriter out = new BitWriter(dst);
+    previous = 0;
+
+    for (int i = offset; i < offset + length; i++) {
+      long delta = values[i] - previous, zigzag = (delta << 1) ^ (delta >> 63);
+      int b = HuffmanColumnCoding.bucket(delta);
+      previous = values[i];
+
+      if (table != null) {
+        out.write(table.getCode((byte) b), table.getLength((byte) b));
+      }
+
+      if (b > 1) {
+        out.write(zigzag, b - 1);
+      }
+    }
+
+    out.flush();
+  }
+
+  /** A method which decompresses values compressed by encode(long[], int, int, ByteBuffer).
+   * @param src The buffer containing the header and compressed bits, which is advanced past the compressed bytes.
+   * @param values The array which receives the decompressed values, which must have room for length() values.
+   * @param offset The index of the first decompressed value.
+   * @return The amount of decompressed values.
+   */
+  public static int decode(ByteBuffer src, long[] values, int offset) {
+    String[] header = HuffmanBlock.readLine(src).split(" ", 2);
+    int length = Integer.parseInt(header[0]), bucket = 0;
+    HuffmanCodeTable table = null;
+
+    if (header[1].startsWith("R")) {
+      bucket = Integer.parseInt(header[1].substring(2));
+    } else {
+      table = HuffmanCodeTable.parse(header[1]);
+    }
+
+    BitReader in = new BitReader(src, src.position());
+    long previous = 0;
+
+    for (int i = offset; i < offset + length; i++) {
+      int b = (table != null ? table.decode(in) : bucket);
+      /** The most significant bit is implied by the bucket, apart from bucket 0 which only contains 0. */
+      long zigzag = (b == 0 ? 0 : (1L << (b - 1)) | in.read(b - 1));
+      previous += (zigzag >>> 1) ^ -(zigzag & 1);
+      values[i] = previous;
+    }
+
+    src.position(in.end());
+    return length;
+  }
+
+  /** A method which returns the amount of values within compressed bytes, by reading the header. The position of the buffer is not changed.
+   * @param src The buffer containing the compressed bytes.
+   * @return The amount of values.
+   */
+  public static int length(ByteBuffer src) {
+    return Integer.parseInt(HuffmanBlock.readLine(src.duplicate()).split(" ", 2)[0]);
+  }
+
+  /** A method which returns the largest amount of bytes that encode() can write when compressing a given amount of values. Each value requires at most 64 bits for its bucket and 63 bits below its most significant bit, and the header contains at most 65 buckets.
+   * @param length The amount of values.
+   * @return The largest amount of compressed bytes.
+   */
+  public static int maxEncodedLength(int length) {
+    return 1024 + length * 16;
+  }
+
+  /** Computes the bucket of a difference between values, which is the amount of significant bits after the zigzag transform. */
+  private static int bucket(long delta) {
+    return 64 - Long.numberOfLeadingZeros((delta << 1) ^ (delta >> 63));
+  }
+}
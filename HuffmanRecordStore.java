@@ -0,0 +1,336 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/** An append-only store of records, such as events, where each record is compressed using the Huffman Coding Compression Method and can be read back by its ID without decompressing any other record.
+ * Appended records are kept in memory until enough bytes were buffered, and are then compressed together as a Segment: one Huffman Binary Tree is built from the frequency table of every record within the batch, and the bit sequences of the records are written one after another. The store keeps the position of the first bit of every record in memory, so reading a record is a singular lookup, followed by reading and decoding only the bytes containing its bits.
+ * Each Segment consists of a header "G count padding size table", followed by the length and the amount of bits of each record, written as variable length integers of 7 bits per byte, and the compressed bits. The mode G differs from the mode of every Block, so a Segment is never mistaken for a Block of a compressed File, or the other way around. The store is reopened by reading the header of every Segment, and a Segment left incomplete by an interrupted flush is discarded.
+ * @author Henry Wang
+ */
+public class HuffmanRecordStore implements Closeable {
+  /** The default amount of buffered bytes which are compressed as a singular Segment. */
+  public static final int DEFAULT_BATCH = 1 << 20;
+  /** The mode written at the start of the header of every Segment. */
+  public static final char SEGMENT = 'G';
+  /** channel: The File containing the Segments.
+   *  batch: The amount of buffered bytes after which the buffered records are compressed as a Segment.
+   */
+  private final FileChannel channel;
+  private final int batch;
+  /** starts: The position of the first bit of each record within the File.
+   *  lengths: The amount of bytes within each record.
+   *  segments: The Segment containing each record.
+   */
+  private long[] starts = new long[64];
+  private int[] lengths = new int[64], segments = new int[64];
+  /** tables, ends: The Code Table of each Segment, and the position following its compressed bits. */
+  private final ArrayList<HuffmanCodeTable> tables = new ArrayList<HuffmanCodeTable>();
+  private long[] ends = new long[16];
+  /** count: The amount of records written to Segments.
+   *  end: The position following the last Segment, where the next Segment is written.
+   */
+  private int count = 0;
+  private long end = 0;
+  /** pending, buffered: The records which were not yet written to a Segment, and their amount of bytes. */
+  private final ArrayList<byte[]> pending = new ArrayList<byte[]>();
+  private long buffered = 0;
+
+  /** A constructor which opens a store, or creates it if the File does not exist, compressing DEFAULT_BATCH bytes of records at a time.
+   * @param fn The name of the File containing the store.
+   * @throws IOException If the File could not be opened or read.
+   */
+  public HuffmanRecordStore(String fn) throws IOException {
+    this(fn, DEFAULT_BATCH);
+  }
+
+  /** A constructor which opens a store, or creates it if the File does not exist. The header of every Segment is read to find the records, and an incomplete Segment at the end of the File is discarded.
+   * @param fn The name of the File containing the store.
+   * @param batch The amount of buffered bytes after which the buffered records are compressed as a Segment. Larger batches share each Huffman Binary Tree between more records.
+   * @throws IOException If the File could not be opened or read.
+   */
+  public HuffmanRecordStore(String fn, int batch) throws IOException {
+    this.channel = FileChannel.open(Paths.get(fn), StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+    this.batch = Math.max(batch, 1);
+
+    try {
+      this.load();
+    } catch (IOException e) {
+      this.channel.close();
+      throw e;
+    }
+  }
+
+  /** Reads the header and record table of every Segment, recording each record, and truncates the File after the last complete Segment. */
+  private void load() throws IOException {
+    long size = this.channel.size();
+
+    while (this.end < size) {
+      String line = BlockIndex.readLine(this.channel, this.end);
+      String[] header = line.trim().split(" ", 5);
+      long payload = this.end + line.length();
+
+      if (!line.endsWith("\n") || header.length != 5 || !header[0].equals(Character.toString(SEGMENT))) {
+        break;
+      }
+
+      int records;
+      long bytes;
+      HuffmanCodeTable table;
+
+      try {
+        records = Integer.parseInt(header[1]);
+        bytes = Long.parseLong(header[3]);
+        table = HuffmanCodeTable.parse(header[4]);
+      } catch (RuntimeException e) {
+        break;
+      }
+
+      if (records < 0 || bytes < 2L * records || payload + bytes > size) {
+        break;
+      }
+
+      /** Each length is at most 5 bytes and each amount of bits at most 10 bytes, so the sizes of the records are within the first 15 bytes per record. */
+      ByteBuffer sizes = BlockIndex.read(this.channel, payload, (int) Math.min(bytes, 15L * records));
+      int[] lengths = new int[records];
+      long[] bits = new long[records];
+
+      for (int i = 0; i < records; i++) {
+        lengths[i] = (int) HuffmanRecordStore.readVarint(sizes);
+        bits[i] = HuffmanRecordStore.readVarint(sizes);
+      }
+
+      long bit = (payload + sizes.position()) * 8;
+      for (int i = 0; i < records; i++) {
+        this.record(bit, lengths[i], this.tables.size());
+        bit += bits[i];
+      }
+
+      this.segment(table, payload + bytes);
+    }
+
+    this.channel.truncate(this.end);
+  }
+
+  /** Records a record written to a Segment, growing the arrays if required. */
+  private void record(long start, int length, int segment) {
+    if (this.count == this.starts.length) {
+      this.starts = Arrays.copyOf(this.starts, this.count * 2);
+      this.lengths = Arrays.copyOf(this.lengths, this.count * 2);
+      this.segments = Arrays.copyOf(this.segments, this.count * 2);
+    }
+
+    this.starts[this.count] = start;
+    this.lengths[this.count] = length;
+    this.segments[this.count] = segment;
+    this.count++;
+  }
+
+  /** Records a Segment which ends at a position, growing the array if required. */
+  private void segment(HuffmanCodeTable table, long end) {
+    if (this.tables.size() == this.ends.length) {
+      this.ends = Arrays.copyOf(this.ends, this.ends.length * 2);
+    }
+
+    this.ends[this.tables.size()] = end;
+    this.tables.add(table);
+    this.end = end;
+  }
+
+  /** A method which appends a record to the store. The record is buffered, and compressed along with the other buffered records once enough bytes were buffered.
+   * @param record The bytes of the record, which are copied.
+   * @return The ID of the record, which is the amount of records appended before it.
+   * @throws IOException If the buffered records could not be written.
+   */
+  public int append(byte[] record) throws IOException {
+    if (this.size() == Integer.MAX_VALUE) {
+      throw new IllegalStateException("The store cannot contain any more records");
+    }
+
+    this.pending.add(record.clone());
+    this.buffered += record.length;
+    int id = this.size() - 1;
+
+    if (this.buffered >= this.batch) {
+      this.flush();
+    }
+
+    return id;
+  }
+
+  /** A method which compresses the buffered records as a singular Segment using one Huffman Binary Tree, writes it at the end of the File, and forces it to storage. The Tree is built from the frequency table of every buffered record, so records within the same batch share their Tree.
+   * @throws IOException If the Segment could not be written.
+   */
+  public void flush() throws IOException {
+    if (this.pending.isEmpty()) {
+      return;
+    }
+
+    int records = this.pending.size();
+    int[] freq = new int[257];
+
+    for (byte[] record : this.pending) {
+      int[] counted = HuffmanBlock.frequencies(record, 0, record.length);
+
+      for (int i = 0; i < 256; i++) {
+        freq[i] += counted[i];
+      }
+    }
+
+    /** A Huffman Binary Tree requires at least two bytes, so bytes which do not appear are counted once until two different bytes are counted. */
+    for (int i = 0, distinct = HuffmanRecordStore.distinct(freq); distinct < 2; i++) {
+      if (freq[i] == 0) {
+        freq[i] = 1;
+        distinct++;
+      }
+    }
+
+    HuffmanCodeTable table = HuffmanCodeTable.fromFrequencies(freq);
+    ByteBuffer sizes = ByteBuffer.allocate(15 * records);
+    BitWriter out = new BitWriter((int) Math.min(this.buffered + 8, Integer.MAX_VALUE - 8));
+    /** A bit sequence may be longer than 8 bits, so the bits of a large record may exceed an int. */
+    long[] bits = new long[records];
+
+    for (int r = 0; r < records; r++) {
+      byte[] record = this.pending.get(r);
+
+      for (byte b : record) {
+        int length = table.getLength(b);
+        out.write(table.getCode(b), length);
+        bits[r] += length;
+      }
+
+      HuffmanRecordStore.writeVarint(sizes, record.length);
+      HuffmanRecordStore.writeVarint(sizes, bits[r]);
+    }
+
+    int padding = out.flush();
+    byte[] compressed = out.toByteArray();
+    sizes.flip();
+    int prefix = sizes.limit();
+    String header = String.format("%c %d %d %d %s\r\n", SEGMENT, records, padding, prefix + compressed.length, table.toString());
+
+    long position = this.end, payload = position + header.length();
+    HuffmanCoding.write(this.channel, ByteBuffer.wrap(header.getBytes()), position);
+    HuffmanCoding.write(this.channel, sizes, payload);
+    HuffmanCoding.write(this.channel, ByteBuffer.wrap(compressed), payload + prefix);
+    this.channel.force(false);
+
+    /** The records are only recorded once the Segment is on storage, so a failed flush leaves the store unchanged. */
+    long bit = (payload + prefix) * 8;
+    for (int r = 0; r < records; r++) {
+      this.record(bit, this.pending.get(r).length, this.tables.size());
+      bit += bits[r];
+    }
+
+    this.segment(table, payload + prefix + compressed.length);
+    this.pending.clear();
+    this.buffered = 0;
+  }
+
+  /** Writes a non-negative long using 7 bits per byte, starting from the lowest bits, where the highest bit of each byte marks that another byte follows. */
+  private static void writeVarint(ByteBuffer dst, long value) {
+    while ((value & ~0x7f) != 0) {
+      dst.put((byte) ((value & 0x7f) | 0x80));
+      value >>>= 7;
+    }
+
+    dst.put((byte) value);
+  }
+
+  /** Reads a long written by writeVarint(). */
+  private static long readVarint(ByteBuffer src) {
+    long value = 0;
+
+    for (int shift = 0; ; shift += 7) {
+      byte b = src.get();
+      value |= (b & 0x7fL) << shift;
+
+      if (b >= 0) {
+        return value;
+      }
+    }
+  }
+
+  /** Counts the bytes with a frequency above 0. */
+  private static int distinct(int[] frequencies) {
+    int distinct = 0;
+
+    for (int i = 0; i < 256; i++) {
+      distinct += (frequencies[i] > 0 ? 1 : 0);
+    }
+
+    return distinct;
+  }
+
+  /** A method which reads a record by its ID. Only the bytes containing the bits of the record are read and decoded, using the Code Table of its Segment.
+   * @param id The ID of the record, as returned by append().
+   * @return The bytes of the record.
+   * @throws IllegalArgumentException If no record has the ID.
+   * @throws IOException If the record could not be read.
+   */
+  public byte[] get(int id) throws IOException {
+    if (id < 0 || id >= this.size()) {
+      throw new IllegalArgumentException(String.format("There is no record with ID %d", id));
+    } else if (id >= this.count) {
+      return this.pending.get(id - this.count).clone();
+    }
+
+    /** The bits of a record end where the next record of its Segment starts, or where the Segment ends. */
+    int segment = this.segments[id];
+    long start = this.starts[id];
+    long stop = (id + 1 < this.count && this.segments[id + 1] == segment ? this.starts[id + 1] : this.ends[segment] * 8);
+    long first = start >>> 3;
+
+    ByteBuffer src = BlockIndex.read(this.channel, first, (int) (((stop + 7) >>> 3) - first));
+    BitReader in = new BitReader(src, 0);
+    HuffmanCodeTable table = this.tables.get(segment);
+    byte[] record = new byte[this.lengths[id]];
+
+    in.refill();
+    in.skip((int) (start & 7));
+
+    for (int i = 0; i < record.length; i++) {
+      record[i] = table.decode(in);
+    }
+
+    return record;
+  }
+
+  /** A getter method which returns the amount of records within the store, including the buffered records.
+   * @return The amount of records.
+   */
+  public int size() {
+    return this.count + this.pending.size();
+  }
+
+  /** A getter method which returns the amount of Segments within the File.
+   * @return The amount of Segments.
+   */
+  public int getSegments() {
+    return this.tables.size();
+  }
+
+  /** A getter method which returns the amount of bytes within the File, excluding the buffered records.
+   * @return The amount of bytes within the File.
+   */
+  public long getCompressedSize() {
+    return this.end;
+  }
+
+  /** A method which writes the buffered records and closes the File.
+   * @throws IOException If the buffered records could not be written.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      this.flush();
+    } finally {
+      this.channel.close();
+    }
+  }
+}
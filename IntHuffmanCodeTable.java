@@ -0,0 +1,437 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/** An immutable table of canonical Huffman bit sequences for an alphabet of int symbols of any size, such as 16 bit symbols, token identifiers or delta encoded integers. Unlike HuffmanCodeTable, which is limited to bytes, symbols and frequencies are kept within primitive arrays instead of boxed Huffman Nodes, and the bit sequences are built in O(n log n) time for an alphabet of n symbols.
+ * @author Henry Wang
+ */
+public final class IntHuffmanCodeTable {
+  /** Symbols within the range [0, DENSE) are looked up within an array instead of a Hash Map. */
+  private static final int DENSE = 1 << 20;
+  /** symbols, lengths, codes: The symbols sorted by the length of their bit sequence, followed by the symbols themselves. This is the canonical order in which bit sequences are assigned. */
+  private final int[] symbols, lengths;
+  private final long[] codes;
+  /** dense, sparse: The index of each symbol within symbols, plus one. Only one of the two is used, depending on the range of the symbols. */
+  private final int[] dense;
+  private final IntIntMap sparse;
+  /** count, first, offset: For each bit sequence length, the amount of symbols with that length, the bit sequence of the first of those symbols, and the index of the first of those symbols. */
+  private final int[] count, offset;
+  private final long[] first;
+  /** lookup, bits: The index within symbols and the length of every bit sequence of at most bits bits, indexed by the next bits bits, so most symbols are decompressed using a singular lookup. Entries of longer bit sequences are -1. */
+  private final int[] lookup;
+  private final int bits;
+  /** The largest amount of bits used to index the lookup table. */
+  private static final int LOOKUP_BITS = 11;
+
+  /** A constructor which builds a Code Table from the length of the bit sequence of each symbol. The bit sequences themselves are assigned canonically, so only the lengths have to be recorded to rebuild the Code Table.
+   * @param symbols The symbols.
+   * @param lengths The length of the bit sequence of each symbol.
+   */
+  private IntHuffmanCodeTable(int[] symbols, int[] lengths) {
+    int n = symbols.length, max = 0;
+    long[] order = new long[n];
+
+    /** Sorts the symbols by the length of their bit sequence, and then by the symbol itself, by packing both into a singular long. */
+    for (int i = 0; i < n; i++) {
+      order[i] = ((long) lengths[i] << 32) | (symbols[i] & 0xffffffffL);
+      max = Math.max(max, lengths[i]);
+    }
+    Arrays.sort(order);
+
+    this.symbols = new int[n];
+    this.lengths = new int[n];
+    this.codes = new long[n];
+    this.count = new int[max + 1];
+    this.offset = new int[max + 1];
+    this.first = new long[max + 1];
+
+    /** Assigns consecutive bit sequences to the sorted symbols, appending a 0 bit whenever the length increases. */
+    long code = 0;
+    int previous = 0;
+    boolean small = true;
+
+    for (int i = 0; i < n; i++) {
+      int length = (int) (order[i] >>> 32);
+      code <<= (length - previous);
+      previous = length;
+
+      if (this.count[length]++ == 0) {
+        this.first[length] = code;
+        this.offset[length] = i;
+      }
+
+      this.symbols[i] = (int) order[i];
+      this.lengths[i] = length;
+      this.codes[i] = code++;
+      small &= (this.symbols[i] >= 0 && this.symbols[i] < DENSE);
+    }
+
+    /** Every bit sequence of at most bits bits fills the range of entries starting with it. The length is kept within the lowest 6 bits of each entry. */
+    this.bits = Math.min(max, LOOKUP_BITS);
+    this.lookup = new int[1 << this.bits];
+    Arrays.fill(this.lookup, -1);
+
+    for (int i = 0; i < n && this.lengths[i] <= this.bits; i++) {
+      int shift = this.bits - this.lengths[i];
+      Arrays.fill(this.lookup, (int) this.codes[i] << shift, (int) (this.codes[i] + 1) << shift, (i << 6) | this.lengths[i]);
+    }
+
+    /** Indexes the symbols using an array if they are small, non negative integers, and a Hash Map otherwise. */
+    if (small) {
+      int range = 0;
+      for (int i = 0; i < n; i++) {
+        range = Math.max(range, this.symbols[i] + 1);
+      }
+
+      this.dense = new int[range];
+      this.sparse = null;
+      for (int i = 0; i < n; i++) {
+        this.dense[this.symbols[i]] = i + 1;
+      }
+    } else {
+      this.dense = null;
+      this.sparse = new IntIntMap(n);
+      for (int i = 0; i < n; i++) {
+        this.sparse.put(this.symbols[i], i + 1);
+      }
+    }
+  }
+
+  /** Builds a Code Table from the symbols which appear within a range of values.
+   * @param values The values.
+   * @param offset The index of the first value.
+   * @param length The amount of values.
+   * @return The Code Table.
+   */
+  public static IntHuffmanCodeTable fromValues(int[] values, int offset, int length) {
+    int min = 0, max = 0;
+
+    for (int i = offset; i < offset + length; i++) {
+      min = Math.min(min, values[i]);
+      max = Math.max(max, values[i]);
+    }
+
+    /** Small, non negative symbols are counted using an array, and all other symbols are counted using a Hash Map. */
+    if (min >= 0 && max < DENSE) {
+      int[] freq = new int[max + 1];
+      for (int i = offset; i < offset + length; i++) {
+        freq[values[i]]++;
+      }
+
+      return IntHuffmanCodeTable.fromFrequencies(freq);
+    }
+
+    IntIntMap freq = new IntIntMap();
+    for (int i = offset; i < offset + length; i++) {
+      freq.add(values[i], 1);
+    }
+
+    return IntHuffmanCodeTable.fromFrequencies(freq.keys(), freq.values());
+  }
+
+  /** Builds a Code Table from a frequency table of symbols.
+   * @param symbols The symbols, which must be distinct.
+   * @param frequencies The frequency of each symbol.
+   * @return The Code Table.
+   */
+  public static IntHuffmanCodeTable fromFrequencies(int[] symbols, int[] frequencies) {
+    return new IntHuffmanCodeTable(symbols, IntHuffmanCodeTable.lengths(frequencies));
+  }
+
+  /** Builds a Code Table from a frequency table indexed by symbol, where only symbols with a frequency above 0 are given a bit sequence.
+   * @param frequencies The frequency of each symbol from 0 to frequencies.length - 1.
+   * @return The Code Table.
+   */
+  public static IntHuffmanCodeTable fromFrequencies(int[] frequencies) {
+    int distinct = 0;
+    for (int i = 0; i < frequencies.length; i++) {
+      distinct += (frequencies[i] > 0 ? 1 : 0);
+    }
+
+    int[] symbols = new int[distinct], counts = new int[distinct];
+    for (int i = 0, k = 0; i < frequencies.length; i++) {
+      if (frequencies[i] > 0) {
+        symbols[k] = i;
+        counts[k++] = frequencies[i];
+      }
+    }
+
+    return IntHuffmanCodeTable.fromFrequencies(symbols, counts);
+  }
+
+  /** Computes the length of the bit sequence of each symbol within a Huffman Binary Tree built from a frequency table. The symbols are sorted by frequency, after which two queues, one of leaves and one of merged Trees, replace the Priority Queue: merged Trees are created in increasing order of frequency, so the two smallest Trees are always at the front of the queues. Sorting dominates, so the algorithm runs in O(n log n) time.
+   * @param frequencies The frequency of each symbol. Symbols with a frequency of 0 are still given a bit sequence.
+   * @return The length of the bit sequence of each symbol.
+   */
+  public static int[] lengths(int[] frequencies) {
+    int n = frequencies.length;
+    int[] lengths = new int[n];
+
+    /** A singular symbol still requires a bit sequence of one bit. */
+    if (n <= 1) {
+      Arrays.fill(lengths, 1);
+      return lengths;
+    }
+
+    long[] order = new long[n];
+    for (int i = 0; i < n; i++) {
+      order[i] = ((long) frequencies[i] << 32) | i;
+    }
+    Arrays.sort(order);
+
+    /** weight, parent: The frequency and parent of each merged Tree, and the parent of each leaf in sorted order. */
+    long[] weight = new long[n - 1];
+    int[] parent = new int[n - 1], leaf = new int[n];
+    int l = 0, head = 0;
+
+    for (int tail = 0; tail < n - 1; tail++) {
+      for (int k = 0; k < 2; k++) {
+        /** Takes the smaller of the next leaf and the next merged Tree, preferring the leaf on ties to keep the bit sequences short. */
+        if (l < n && (head >= tail || (order[l] >>> 32) <= weight[head])) {
+          weight[tail] += order[l] >>> 32;
+          leaf[l++] = tail;
+        } else {
+          weight[tail] += weight[head];
+          parent[head++] = tail;
+        }
+      }
+    }
+
+    /** The last merged Tree is the root. The depth of every other merged Tree is one more than its parent, which was always merged later. */
+    int[] depth = new int[n - 1];
+    for (int i = n - 3; i >= 0; i--) {
+      depth[i] = depth[parent[i]] + 1;
+    }
+
+    for (int i = 0; i < n; i++) {
+      lengths[(int) order[i]] = depth[leaf[i]] + 1;
+    }
+
+    return lengths;
+  }
+
+  /** Computes the length of the bit sequence of each symbol within a Huffman Binary Tree built from a frequency table, where no bit sequence is longer than a limit, as required by formats such as DEFLATE. The unlimited lengths are computed first; if any exceeds the limit, it is shortened to the limit, and the shortest leaves are moved deeper until the bit sequences are prefix free again (the sum of 2^-length is at most 1). The shortest lengths are then given to the most frequent symbols.
+   * @param frequencies The frequency of each symbol. Symbols with a frequency of 0 are still given a bit sequence.
+   * @param limit The largest length of a bit sequence, where 2^limit must be at least the amount of symbols.
+   * @return The length of the bit sequence of each symbol.
+   */
+  public static int[] lengths(int[] frequencies, int limit) {
+    int[] lengths = IntHuffmanCodeTable.lengths(frequencies);
+    int n = lengths.length, longest = 0;
+
+    for (int i = 0; i < n; i++) {
+      longest = Math.max(longest, lengths[i]);
+    }
+
+    if (longest <= limit) {
+      return lengths;
+    }
+
+    /** count: The amount of symbols with each length, after shortening every length to the limit. */
+    int[] count = new int[limit + 1];
+    long total = 0;
+
+    for (int i = 0; i < n; i++) {
+      count[Math.min(lengths[i], limit)]++;
+    }
+
+    for (int length = 1; length <= limit; length++) {
+      total += (long) count[length] << (limit - length);
+    }
+
+    /** Each step removes one leaf at the limit, and moves the longest leaf shorter than the limit one level deeper, next to a leaf moved from the limit, which reduces the sum by 2^-limit. */
+    while (total > (1L << limit)) {
+      count[limit]--;
+
+      for (int length = limit - 1; length > 0; length--) {
+        if (count[length] > 0) {
+          count[length]--;
+          count[length + 1] += 2;
+          break;
+        }
+      }
+
+      total--;
+    }
+
+    long[] order = new long[n];
+    for (int i = 0; i < n; i++) {
+      order[i] = ((long) frequencies[i] << 32) | i;
+    }
+    Arrays.sort(order);
+
+    for (int length = limit, k = 0; length > 0; length--) {
+      for (int c = 0; c < count[length]; c++) {
+        lengths[(int) order[k++]] = length;
+      }
+    }
+
+    return lengths;
+  }
+
+
+  /** Finds the index of a symbol within the canonical order, or -1 if the symbol does not have a bit sequence. */
+  private int index(int symbol) {
+    if (this.dense != null) {
+      return (symbol >= 0 && symbol < this.dense.length ? this.dense[symbol] : 0) - 1;
+    }
+
+    return this.sparse.get(symbol, 0) - 1;
+  }
+
+  /** Compresses a range of values, writing the bit sequence of each value.
+   * @param values The values.
+   * @param offset The index of the first value.
+   * @param length The amount of values.
+   * @param out The Bit Writer which receives the bit sequences.
+   */
+  public void encode(int[] values, int offset, int length, BitWriter out) {
+    for (int i = offset; i < offset + length; i++) {
+      int index = this.index(values[i]);
+
+      if (index < 0) {
+        throw new IllegalArgumentException(String.format("Symbol %d does not have a bit sequence", values[i]));
+      }
+
+      out.write(this.codes[index], this.lengths[index]);
+    }
+  }
+
+  /** Compresses a singular symbol, writing its bit sequence.
+   * @param symbol The symbol.
+   * @param out The Bit Writer which receives the bit sequence.
+   */
+  public void encode(int symbol, BitWriter out) {
+    int index = this.index(symbol);
+
+    if (index < 0) {
+      throw new IllegalArgumentException(String.format("Symbol %d does not have a bit sequence", symbol));
+    }
+
+    out.write(this.codes[index], this.lengths[index]);
+  }
+
+  /** Decompresses values using the canonical bit sequences.
+   * @param src The buffer containing the compressed bits, which may be a direct or memory mapped buffer.
+   * @param start The index of the byte containing the first compressed bit.
+   * @param values The array which receives the decompressed values.
+   * @param offset The index of the first decompressed value.
+   * @param length The amount of values to be decompressed.
+   * @return The amount of compressed bits which were read.
+   */
+  public long decode(ByteBuffer src, int start, int[] values, int offset, int length) {
+    BitReader in = new BitReader(src, start);
+    int batch = 56 / Math.max(this.bits, 1);
+
+    /** A refill loads at least 56 bits, which is enough for several lookups without refilling in between. */
+    for (int i = offset; i < offset + length; ) {
+      in.refill();
+
+      for (int k = 0; k < batch && i < offset + length; k++) {
+        int entry = this.lookup[(int) in.peek(this.bits)];
+
+        if (entry < 0) {
+          values[i++] = this.decode(in);
+          break;
+        }
+
+        in.skip(entry & 63);
+        values[i++] = this.symbols[entry >>> 6];
+      }
+    }
+
+    return in.position() - (long) start * 8;
+  }
+
+  /** Decompresses a singular symbol. Bit sequences of at most 11 bits are decompressed using a singular lookup. Longer bit sequences are read one bit at a time until the bit sequence read so far falls within the range of bit sequences of its length, so no Huffman Binary Tree is required.
+   * @param in The Bit Reader containing the compressed bits.
+   * @return The decompressed symbol.
+   */
+  public int decode(BitReader in) {
+    in.refill();
+    int entry = this.lookup[(int) in.peek(this.bits)];
+
+    if (entry >= 0) {
+      in.skip(entry & 63);
+      return this.symbols[entry >>> 6];
+    }
+
+    long code = in.peek(this.bits);
+    int size = this.bits;
+    in.skip(this.bits);
+
+    while (code - this.first[size] >= this.count[size] || code < this.first[size]) {
+      code = (code << 1) | in.read();
+      size++;
+    }
+
+    return this.symbols[this.offset[size] + (int) (code - this.first[size])];
+  }
+
+  /** Computes the amount of compressed bits required to encode a frequency table indexed by symbol.
+   * @param frequencies The frequency of each symbol from 0 to frequencies.length - 1.
+   * @return The amount of compressed bits, or -1 if a counted symbol does not have a bit sequence.
+   */
+  public long cost(int[] frequencies) {
+    long bits = 0;
+
+    for (int i = 0; i < frequencies.length; i++) {
+      if (frequencies[i] > 0) {
+        int length = this.getLength(i);
+
+        if (length == 0) {
+          return -1;
+        }
+        bits += (long) frequencies[i] * length;
+      }
+    }
+
+    return bits;
+  }
+
+  /** A getter method which returns the length of the bit sequence of a symbol.
+   * @param symbol The symbol.
+   * @return The length of the bit sequence of the symbol, or 0 if the symbol does not have a bit sequence.
+   */
+  public int getLength(int symbol) {
+    int index = this.index(symbol);
+    return (index >= 0 ? this.lengths[index] : 0);
+  }
+
+  /** A getter method which returns the amount of symbols within the Code Table.
+   * @return The amount of symbols.
+   */
+  public int size() {
+    return this.symbols.length;
+  }
+
+  /** A method which builds a Code Table from its String representation, as returned by toString().
+   * @param table The String representation of the Code Table.
+   * @return The Code Table.
+   */
+  public static IntHuffmanCodeTable parse(String table) {
+    String[] parts = table.trim().split(" ");
+    int n = (table.isBlank() ? 0 : parts.length / 2);
+    int[] symbols = new int[n], lengths = new int[n];
+
+    for (int i = 0; i < n; i++) {
+      symbols[i] = Integer.parseInt(parts[2 * i]);
+      lengths[i] = Integer.parseInt(parts[2 * i + 1]);
+    }
+
+    return new IntHuffmanCodeTable(symbols, lengths);
+  }
+
+  /** Overrides the built-in toString() method to return a String representation of the Code Table, consisting of each symbol followed by the length of its bit sequence. Since the bit sequences are canonical, this is enough to rebuild the Code Table.
+   * @return The String representation of the Code Table.
+   */
+  @Override
+  public String toString() {
+    StringBuilder table = new StringBuilder();
+
+    for (int i = 0; i < this.symbols.length; i++) {
+      table.append(i > 0 ? " " : "").append(this.symbols[i]).append(' ').append(this.lengths[i]);
+    }
+
+    return table.toString();
+  }
+}
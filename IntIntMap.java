@@ -0,0 +1,141 @@
+/** A Hash Map from int keys to int values, which stores keys and values within primitive arrays instead of boxed Integer objects. Collisions are resolved using linear probing.
+ * @author Henry Wang
+ */
+public class IntIntMap {
+  private int[] keys, values;
+  private boolean[] used;
+  private int size = 0;
+
+  /** A constructor which initializes an empty Hash Map. */
+  public IntIntMap() {
+    this(16);
+  }
+
+  /** A constructor which initializes an empty Hash Map, able to hold an expected amount of keys without growing.
+   * @param expected The expected amount of keys.
+   */
+  public IntIntMap(int expected) {
+    int capacity = 16;
+    while (capacity < expected * 2) {
+      capacity <<= 1;
+    }
+
+    this.keys = new int[capacity];
+    this.values = new int[capacity];
+    this.used = new boolean[capacity];
+  }
+
+  /** Finds the slot of a key, which is either the slot containing the key or the empty slot where the key would be inserted. */
+  private int slot(int key) {
+    int mask = this.keys.length - 1;
+    /** Multiplying by the golden ratio spreads sequential keys across the whole table, whose index is taken from the highest bits of the product. */
+    int i = (key * 0x9E3779B9) >>> Integer.numberOfLeadingZeros(mask);
+
+    while (this.used[i] && this.keys[i] != key) {
+      i = (i + 1) & mask;
+    }
+
+    return i;
+  }
+
+  /** Adds an amount to the value of a key, inserting the key with a value of 0 first if it does not exist.
+   * @param key The key.
+   * @param amount The amount added to the value of the key.
+   */
+  public void add(int key, int amount) {
+    int i = this.slot(key);
+
+    if (this.used[i]) {
+      this.values[i] += amount;
+      return;
+    }
+
+    this.used[i] = true;
+    this.keys[i] = key;
+    this.values[i] = amount;
+
+    /** Grow the table once it is half full, to keep the probe sequences short. */
+    if (++this.size * 2 > this.keys.length) {
+      this.grow();
+    }
+  }
+
+  /** Redefines the value of a key, inserting the key if it does not exist.
+   * @param key The key.
+   * @param value The new value of the key.
+   */
+  public void put(int key, int value) {
+    int i = this.slot(key);
+
+    if (this.used[i]) {
+      this.values[i] = value;
+    } else {
+      this.add(key, value);
+    }
+  }
+
+  /** A getter method which returns the value of a key.
+   * @param key The key.
+   * @param missing The value returned if the key does not exist.
+   * @return The value of the key, or missing if the key does not exist.
+   */
+  public int get(int key, int missing) {
+    int i = this.slot(key);
+    return (this.used[i] ? this.values[i] : missing);
+  }
+
+  /** Doubles the capacity of the table, and reinserts every key. */
+  private void grow() {
+    int[] keys = this.keys, values = this.values;
+    boolean[] used = this.used;
+    this.keys = new int[keys.length * 2];
+    this.values = new int[keys.length * 2];
+    this.used = new boolean[keys.length * 2];
+
+    for (int i = 0; i < keys.length; i++) {
+      if (used[i]) {
+        int j = this.slot(keys[i]);
+        this.used[j] = true;
+        this.keys[j] = keys[i];
+        this.values[j] = values[i];
+      }
+    }
+  }
+
+  /** A getter method which returns the amount of keys within the Hash Map.
+   * @return The amount of keys.
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /** A method which returns every key within the Hash Map, in the same order as values().
+   * @return The keys of the Hash Map.
+   */
+  public int[] keys() {
+    int[] keys = new int[this.size];
+
+    for (int i = 0, k = 0; i < this.keys.length; i++) {
+      if (this.used[i]) {
+        keys[k++] = this.keys[i];
+      }
+    }
+
+    return keys;
+  }
+
+  /** A method which returns every value within the Hash Map, in the same order as keys().
+   * @return The values of the Hash Map.
+   */
+  public int[] values() {
+    int[] values = new int[this.size];
+
+    for (int i = 0, k = 0; i < this.keys.length; i++) {
+      if (this.used[i]) {
+        values[k++] = this.values[i];
+      }
+    }
+
+    return values;
+  }
+}
@@ -1,8 +1,9 @@
+import java.io.IOException;
 import java.util.Scanner;
 
 public class Main {
   public static void printOps() {
-    System.out.println("COMMANDS:\n" + "1. COMPRESS\n" + "2. QUIT");
+    System.out.println("COMMANDS:\n" + "1. COMPRESS\n" + "2. DECOMPRESS\n" + "3. GZIP\n" + "4. QUIT");
   }
 
   public static void main(String[] args) {
@@ -23,8 +24,32 @@ public class Main {
         System.out.print("FILE TO BE COMPRESSED: ");
         fn = sc.nextLine();
 
-        HuffmanCoding compression = new HuffmanCoding(fn);
-        String out = compression.writeToFile();
+        try {
+          HuffmanCoding compression = new HuffmanCoding(fn);
+          String out = compression.writeToFile();
+
+          if (!out.equals("")) {
+            System.out.println(String.format("Successfully compressed to: %s", out));
+          }
+        } catch (IOException e) {
+          System.out.println(String.format("Could not read file: %s", fn));
+        }
+      } else if (line.equals("DECOMPRESS")) {
+        String fn = "";
+        System.out.print("FILE TO BE DECOMPRESSED: ");
+        fn = sc.nextLine();
+
+        String out = HuffmanCoding.decompressFile(fn);
+
+        if (!out.equals("")) {
+          System.out.println(String.format("Successfully decompressed to: %s", out));
+        }
+      } else if (line.equals("GZIP")) {
+        String fn = "";
+        System.out.print("FILE TO BE COMPRESSED: ");
+        fn = sc.nextLine();
+
+        String out = DeflateCoding.compressFile(fn, new MatchFinder(32768, 6));
 
         if (!out.equals("")) {
           System.out.println(String.format("Successfully compressed to: %s", out));
@@ -0,0 +1,258 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/** An LZ77 Match Finder, which replaces repeated sequences of bytes with references to an earlier occurrence of the same bytes. Huffman Coding alone only exploits how often each byte appears, so it cannot compress repeated words or lines; a reference consisting of a length and a distance can.
+ * Earlier occurrences are found using hash chains: the position of every three bytes is recorded in a Hash Table indexed by those bytes, and each position links to the previous position with the same hash. The level decides how many positions of a chain are searched, and whether a match may be postponed if the next position has a longer match (lazy matching).
+ * Lengths and distances are mapped to symbols and extra bits in the same way as DEFLATE (RFC 1951), so that literals and lengths share one alphabet of 286 symbols, and distances use a second alphabet.
+ * @author Henry Wang
+ */
+public class MatchFinder {
+  public static final int MIN_MATCH = 3, MAX_MATCH = 258, LITERALS = 256, END = 256;
+  /** The smallest length of each length symbol (257 to 285), and the amount of extra bits following each length symbol. */
+  private static final int[] LENGTH_BASE = {3, 4, 5, 6, 7, 8, 9, 10, 11, 13, 15, 17, 19, 23, 27, 31, 35, 43, 51, 59, 67, 83, 99, 115, 131, 163, 195, 227, 258};
+  private static final int[] LENGTH_EXTRA = {0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 4, 4, 4, 4, 5, 5, 5, 5, 0};
+  /** The amount of positions searched within a hash chain, the length at which a match is considered good enough to only search a quarter of the remaining chain, and the length at which a match is considered good enough to stop searching, for each level from 1 to 9. */
+  private static final int[] CHAIN = {4, 8, 16, 32, 64, 128, 256, 512, 1024};
+  private static final int[] GOOD = {8, 8, 16, 16, 32, 32, 64, 128, 128};
+  private static final int[] NICE = {8, 16, 32, 32, 64, 128, 128, 258, 258};
+  private static final int HASH_BITS = 16;
+
+  private final int window, level;
+  private final int[] head, prev;
+  /** lengths, values: The tokens found by the latest call to parse(). A token with a length of 0 is a literal byte, stored within values, and any other token is a match, whose distance is stored within values. */
+  private int[] lengths = new int[0], values = new int[0];
+  private int tokens = 0;
+  /** Whether the latest search stopped because it searched as many positions as the level allows, rather than because the chain ended or a good enough match was found. */
+  private boolean exhausted = false;
+
+  /** A constructor which initializes a Match Finder.
+   * @param window The largest distance of a match, which is rounded up to a power of two between 256 and 2^24. A window of 32768 keeps the distances compatible with DEFLATE.
+   * @param level The level, between 1 (fastest) and 9 (smallest output).
+   */
+  public MatchFinder(int window, int level) {
+    int size = 256;
+    while (size < window && size < (1 << 24)) {
+      size <<= 1;
+    }
+
+    this.window = size;
+    this.level = Math.max(1, Math.min(9, level));
+    this.head = new int[1 << HASH_BITS];
+    this.prev = new int[size];
+  }
+
+  /** A method which finds the matches within a range of bytes, replacing the tokens of the previous call. Matches never refer to bytes before the range, so the range can be decompressed independently.
+   * @param data The buffer containing the bytes, which may be a direct or memory mapped buffer.
+   * @param offset The index of the first byte.
+   * @param length The amount of bytes.
+   * @return The amount of tokens.
+   */
+  public int parse(ByteBuffer data, int offset, int length) {
+    if (this.lengths.length < length) {
+      this.lengths = new int[length];
+      this.values = new int[length];
+    }
+
+    Arrays.fill(this.head, -1);
+    this.tokens = 0;
+    boolean lazy = (this.level >= 4);
+    int i = 0;
+
+    while (i < length) {
+      long match = this.find(data, offset, length, i, 0);
+      this.insert(data, offset, length, i);
+      int best = (int) (match >>> 32);
+
+      /** With lazy matching, a match is postponed by a literal if the next position has a longer match. If the search used up the whole chain without a good match, the bytes are repetitive enough that the next position would use up its chain as well, so it is not searched. */
+      if (lazy && best >= MIN_MATCH && best < NICE[this.level - 1] && !this.exhausted && (int) (this.find(data, offset, length, i + 1, best) >>> 32) > best) {
+        best = 0;
+      }
+
+      if (best >= MIN_MATCH) {
+        this.lengths[this.tokens] = best;
+        this.values[this.tokens++] = (int) match;
+
+        for (int k = 1; k < best; k++) {
+          this.insert(data, offset, length, i + k);
+        }
+        i += best;
+      } else {
+        this.lengths[this.tokens] = 0;
+        this.values[this.tokens++] = data.get(offset + i) & 0xff;
+        i++;
+      }
+    }
+
+    return this.tokens;
+  }
+
+  /** Computes the hash of the three bytes starting at a position. */
+  private static int hash(ByteBuffer data, int offset, int i) {
+    int key = (data.get(offset + i) & 0xff) << 16 | (data.get(offset + i + 1) & 0xff) << 8 | (data.get(offset + i + 2) & 0xff);
+    return (key * 0x9E3779B1) >>> (32 - HASH_BITS);
+  }
+
+  /** Records a position at the front of the hash chain of its three bytes. */
+  private void insert(ByteBuffer data, int offset, int length, int i) {
+    if (i + MIN_MATCH <= length) {
+      int h = MatchFinder.hash(data, offset, i);
+      this.prev[i & (this.window - 1)] = this.head[h];
+      this.head[h] = i;
+    }
+  }
+
+  /** Searches the hash chain of a position for the longest earlier occurrence of the bytes starting at that position. Once a good match is known, either from the previous position or found within the chain, only a quarter of the remaining chain is searched, since a longer match is unlikely to be worth the search, as within zlib.
+   * @param previous The length of the match at the previous position, which this position has to beat, or 0 if there is none.
+   * @return The length of the longest match within the highest 32 bits, and its distance within the lowest 32 bits.
+   */
+  private long find(ByteBuffer data, int offset, int length, int i, int previous) {
+    if (i + MIN_MATCH > length) {
+      return 0;
+    }
+
+    int max = Math.min(MAX_MATCH, length - i), nice = NICE[this.level - 1], good = GOOD[this.level - 1], chain = CHAIN[this.level - 1];
+    int best = MIN_MATCH - 1, distance = 0, candidate = this.head[MatchFinder.hash(data, offset, i)];
+    boolean reduced = (previous >= good);
+    this.exhausted = false;
+
+    if (reduced) {
+      chain >>= 2;
+    }
+
+    while (candidate >= 0 && i - candidate <= this.window) {
+      if (chain-- == 0) {
+        this.exhausted = true;
+        break;
+      }
+
+      /** Comparing the byte which would extend the best match first skips most candidates which cannot be longer. */
+      if (data.get(offset + candidate + best) == data.get(offset + i + best)) {
+        int k = MatchFinder.common(data, offset + candidate, offset + i, max);
+
+        if (k > best) {
+          best = k;
+          distance = i - candidate;
+
+          if (k >= nice || k == max) {
+            break;
+          }
+
+          if (k >= good && !reduced) {
+            chain >>= 2;
+            reduced = true;
+          }
+        }
+      }
+
+      /** A chain entry which was overwritten by a newer position no longer leads to earlier positions, and ends the chain. */
+      int next = this.prev[candidate & (this.window - 1)];
+      if (next >= candidate) {
+        break;
+      }
+      candidate = next;
+    }
+
+    return (best >= MIN_MATCH ? ((long) best << 32) | distance : 0);
+  }
+
+  /** Counts the equal bytes at the start of two ranges, up to a maximum. The bytes are compared 8 at a time using a singular long, and the first differing byte is found from the lowest differing bit if the buffer reads a long with its first byte as the lowest byte, and from the highest differing bit otherwise. */
+  private static int common(ByteBuffer data, int a, int b, int max) {
+    boolean little = (data.order() == ByteOrder.LITTLE_ENDIAN);
+    int k = 0;
+
+    for (; k + 8 <= max; k += 8) {
+      long difference = data.getLong(a + k) ^ data.getLong(b + k);
+      if (difference != 0) {
+        return k + ((little ? Long.numberOfTrailingZeros(difference) : Long.numberOfLeadingZeros(difference)) >>> 3);
+      }
+    }
+
+    while (k < max && data.get(a + k) == data.get(b + k)) {
+      k++;
+    }
+
+    return k;
+  }
+
+  /** A getter method which returns the length of a token found by the latest call to parse().
+   * @param index The index of the token.
+   * @return The length of the match, or 0 if the token is a literal byte.
+   */
+  public int getLength(int index) {
+    return this.lengths[index];
+  }
+
+  /** A getter method which returns the value of a token found by the latest call to parse().
+   * @param index The index of the token.
+   * @return The distance of the match, or the literal byte within the range [0, 255].
+   */
+  public int getValue(int index) {
+    return this.values[index];
+  }
+
+  /** A getter method which returns the largest distance of a match.
+   * @return The window of the Match Finder.
+   */
+  public int getWindow() {
+    return this.window;
+  }
+
+  /** Maps the length of a match to its symbol within the literal and length alphabet, from 257 to 285.
+   * @param length The length of the match, between 3 and 258.
+   * @return The symbol of the length.
+   */
+  public static int lengthSymbol(int length) {
+    int index = Arrays.binarySearch(LENGTH_BASE, length);
+    return 257 + (index >= 0 ? index : -index - 2);
+  }
+
+  /** A getter method which returns the smallest length represented by a length symbol.
+   * @param symbol The length symbol, from 257 to 285.
+   * @return The smallest length of the symbol.
+   */
+  public static int lengthBase(int symbol) {
+    return LENGTH_BASE[symbol - 257];
+  }
+
+  /** A getter method which returns the amount of extra bits following a length symbol.
+   * @param symbol The length symbol, from 257 to 285.
+   * @return The amount of extra bits.
+   */
+  public static int lengthExtra(int symbol) {
+    return LENGTH_EXTRA[symbol - 257];
+  }
+
+  /** Maps the distance of a match to its symbol within the distance alphabet. Symbols 0 to 3 represent distances 1 to 4, and every further pair of symbols doubles the range of distances using one more extra bit, which matches DEFLATE for distances up to 32768.
+   * @param distance The distance of the match.
+   * @return The symbol of the distance.
+   */
+  public static int distanceSymbol(int distance) {
+    if (distance <= 4) {
+      return distance - 1;
+    }
+
+    int extra = 30 - Integer.numberOfLeadingZeros(distance - 1);
+    return 2 * (extra + 1) + ((distance - 1) >> extra & 1);
+  }
+
+  /** A getter method which returns the smallest distance represented by a distance symbol.
+   * @param symbol The distance symbol.
+   * @return The smallest distance of the symbol.
+   */
+  public static int distanceBase(int symbol) {
+    if (symbol < 4) {
+      return symbol + 1;
+    }
+
+    return ((2 + (symbol & 1)) << MatchFinder.distanceExtra(symbol)) + 1;
+  }
+
+  /** A getter method which returns the amount of extra bits following a distance symbol.
+   * @param symbol The distance symbol.
+   * @return The amount of extra bits.
+   */
+  public static int distanceExtra(int symbol) {
+    return (symbol < 4 ? 0 : symbol / 2 - 1);
+  }
+}
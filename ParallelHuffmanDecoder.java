@@ -0,0 +1,139 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/** A decompressor which decodes the Blocks of a compressed File concurrently on a Fork Join Pool. The Block Index gives the position of every Block within both Files, so each Block is decoded from a memory mapped range of the compressed File into a memory mapped range of the decompressed File, which keeps the bytes in order without a thread that writes them one Block at a time, and without copying any Block through the heap.
+ * A PREVIOUS Block reuses the Huffman Binary Tree of an earlier Block, so the headers are read once before decoding, and each Code Table is parsed once and shared by every Block which reuses it. The range of Blocks is split in halves, so idle threads steal the remaining halves of busy threads.
+ * @author Henry Wang
+ */
+public class ParallelHuffmanDecoder {
+  /** Files are decompressed without any state, so the class only consists of static methods. */
+  private ParallelHuffmanDecoder() {
+  }
+
+  /** A method which decompresses a compressed File using the common Fork Join Pool, and writes the decompressed bytes to the name of the original File, within the directory of the compressed File.
+   * @param fn The name of the compressed File.
+   * @return The file name of the decompressed File, or an empty String if the File could not be decompressed.
+   */
+  public static String decompressFile(String fn) {
+    return ParallelHuffmanDecoder.decompressFile(fn, ForkJoinPool.commonPool());
+  }
+
+  /** A method which decompresses a compressed File using a Fork Join Pool, and writes the decompressed bytes to the name of the original File, within the directory of the compressed File. Files without a Block Index are decompressed as well, by reading the header of every Block first. If decompression fails, the partial decompressed File is deleted.
+   * @param fn The name of the compressed File.
+   * @param pool The Fork Join Pool which decodes the Blocks.
+   * @return The file name of the decompressed File, or an empty String if the File could not be decompressed.
+   */
+  public static String decompressFile(String fn, ForkJoinPool pool) {
+    try (FileChannel input = FileChannel.open(Paths.get(fn), StandardOpenOption.READ)) {
+      Path original = HuffmanCoding.decompressedPath(fn, BlockIndex.readLine(input, 0).trim());
+      BlockIndex index = BlockIndex.load(input);
+      int count = index.getCount();
+
+      /** ends, lengths: The position following the compressed bytes of each Block, and its amount of decompressed bytes.
+       *  tables: The Code Table of each PREVIOUS Block, which is parsed from the header of the Block which wrote it.
+       */
+      long[] ends = new long[count];
+      int[] lengths = new int[count];
+      HuffmanCodeTable[] tables = new HuffmanCodeTable[count];
+      String bracket = null;
+      HuffmanCodeTable shared = null;
+
+      for (int i = 0; i < count; i++) {
+        String line = BlockIndex.readLine(input, index.getOffset(i));
+        String[] header = line.trim().split(" ", 5);
+        char mode = header[0].charAt(0);
+
+        lengths[i] = Integer.parseInt(header[1]);
+        ends[i] = index.getOffset(i) + line.length() + Long.parseLong(header[3]);
+
+        if (mode == HuffmanBlock.HUFFMAN) {
+          bracket = header[4];
+          shared = null;
+        } else if (mode == HuffmanBlock.PREVIOUS) {
+          if (shared == null) {
+            shared = HuffmanCodeTable.parse(bracket);
+          }
+          tables[i] = shared;
+        }
+      }
+
+      FileChannel output = FileChannel.open(original, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+      boolean complete = false;
+
+      try (output) {
+        /** The decompressed File is extended to its full length first, so every Block maps a range within the File. */
+        if (index.getLength() > 0) {
+          HuffmanCoding.write(output, ByteBuffer.allocate(1), index.getLength() - 1);
+        }
+
+        pool.invoke(new Decode(input, output, index, ends, lengths, tables, 0, count));
+        complete = true;
+      } finally {
+        /** Like AsyncHuffmanCoding, a failed decompression does not leave a partial File which could be mistaken for the original. */
+        if (!complete) {
+          Files.deleteIfExists(original);
+        }
+      }
+
+      return original.toString();
+    } catch (IOException | UncheckedIOException e) {
+      System.out.println(String.format("Could not decompress file: %s", fn));
+    }
+
+    return "";
+  }
+
+  /** A task which decodes a range of Blocks, splitting the range in halves until it consists of a singular Block. */
+  private static class Decode extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final FileChannel input, output;
+    private final BlockIndex index;
+    private final long[] ends;
+    private final int[] lengths;
+    private final HuffmanCodeTable[] tables;
+    private final int from, to;
+
+    Decode(FileChannel input, FileChannel output, BlockIndex index, long[] ends, int[] lengths, HuffmanCodeTable[] tables, int from, int to) {
+      this.input = input;
+      this.output = output;
+      this.index = index;
+      this.ends = ends;
+      this.lengths = lengths;
+      this.tables = tables;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (this.to - this.from > 1) {
+        int middle = (this.from + this.to) >>> 1;
+        RecursiveAction.invokeAll(new Decode(this.input, this.output, this.index, this.ends, this.lengths, this.tables, this.from, middle),
+                                  new Decode(this.input, this.output, this.index, this.ends, this.lengths, this.tables, middle, this.to));
+      } else if (this.to - this.from == 1) {
+        this.decode(this.from);
+      }
+    }
+
+    /** Decodes a Block from the mapped range of its header and compressed bytes into the mapped range of its decompressed bytes, so no buffer is allocated for the Block. Ranges of the same File Channel may be mapped concurrently. */
+    private void decode(int i) {
+      try {
+        long offset = this.index.getOffset(i);
+        ByteBuffer src = this.input.map(FileChannel.MapMode.READ_ONLY, offset, this.ends[i] - offset);
+        ByteBuffer dst = this.output.map(FileChannel.MapMode.READ_WRITE, this.index.getPosition(i), this.lengths[i]);
+
+        HuffmanBlock.decode(src, dst, this.tables[i]);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+}
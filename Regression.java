@@ -0,0 +1,354 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/** A command line regression harness which generates reproducible corpora, checks that each corpus decompresses to its original bytes at several compression levels, and compares the ratio and throughput of each corpus against a File of baselines. The harness exits with status 1 if a corpus does not round trip or its ratio falls below its baseline, so the codec can be changed without silently breaking it.
+ * Throughput is measured relative to a fixed reference loop measured just before each corpus, so baselines hold across machines and load. A throughput below its baseline by more than a threshold is only reported, unless -f is given.
+ * Every corpus is generated from a fixed seed: uniform random bytes, Zipf distributed bytes, a singular repeated byte, two bytes, every one of the 256 bytes, an empty corpus, and a sparse File of several GB, which is compressed using streamFile() and decompressed using the ParallelHuffmanDecoder.
+ * Usage: java Regression [-b baselines] [-t threshold] [-f] [-s sparse bytes] [-w]
+ * @author Henry Wang
+ */
+public class Regression {
+  /** The amount of bytes within each generated corpus, besides the empty and sparse corpora. */
+  private static final int CORPUS_SIZE = 1 << 20;
+  /** The compression levels at which every corpus is compressed. */
+  private static final int[] LEVELS = {1, 5, 9};
+  /** The amount of nanoseconds for which each corpus is repeatedly measured, keeping the fastest repetition, so that fast corpora are measured often enough to be stable. */
+  private static final long MEASURE_NANOS = 500_000_000L;
+  /** The memory budget used to stream the sparse File, which keeps every Block small however large the File is. */
+  private static final long SPARSE_BUDGET = 64L << 20;
+  /** The fraction by which the ratio of a corpus may fall below its baseline. The ratio does not depend on the machine, so any loss beyond rounding is a regression. */
+  private static final double RATIO_THRESHOLD = 0.001;
+
+  /** The harness only consists of its main method. */
+  private Regression() {
+  }
+
+  public static void main(String[] args) throws IOException {
+    Path baselines = Paths.get("test", "baselines.txt");
+    double threshold = 0.5;
+    long sparse = 3L << 30;
+    boolean write = false, strict = false;
+
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("-b") && i + 1 < args.length) {
+        baselines = Paths.get(args[++i]);
+      } else if (args[i].equals("-t") && i + 1 < args.length) {
+        threshold = Double.parseDouble(args[++i]);
+      } else if (args[i].equals("-s") && i + 1 < args.length) {
+        sparse = Long.parseLong(args[++i]);
+      } else if (args[i].equals("-f")) {
+        strict = true;
+      } else if (args[i].equals("-w")) {
+        write = true;
+      } else {
+        System.out.println("Usage: java Regression [-b baselines] [-t threshold] [-f] [-s sparse bytes] [-w]");
+        return;
+      }
+    }
+
+    Map<String, double[]> expected = Regression.readBaselines(baselines);
+    Map<String, double[]> results = new LinkedHashMap<String, double[]>();
+    Map<String, byte[]> corpora = Regression.corpora();
+    int failures = 0;
+
+    System.out.println(String.format("%-16s %10s %10s %8s %15s %17s %s", "CORPUS", "BYTES", "SIZE", "RATIO", "COMPRESS MB/s", "DECOMPRESS MB/s", "RESULT"));
+
+    for (Map.Entry<String, byte[]> corpus : corpora.entrySet()) {
+      for (int level : LEVELS) {
+        String name = String.format("%s-%d", corpus.getKey(), level);
+        double reference = Regression.reference(corpora.get("uniform"));
+        double[] result = Regression.relative(Regression.measure(corpus.getValue(), level), reference);
+        results.put(name, result);
+        failures += Regression.report(name, corpus.getValue().length, result, expected.get(name), threshold, strict);
+      }
+    }
+
+    Path directory = Files.createTempDirectory("regression");
+    try {
+      String name = String.format("sparse-%d", sparse);
+      double reference = Regression.reference(corpora.get("uniform"));
+      double[] result = Regression.relative(Regression.measureSparse(directory.resolve("sparse.dat"), sparse), reference);
+      results.put(name, result);
+      failures += Regression.report(name, sparse, result, expected.get(name), threshold, strict);
+    } finally {
+      try (Stream<Path> paths = Files.list(directory)) {
+        for (Path path : (Iterable<Path>) paths::iterator) {
+          Files.delete(path);
+        }
+      }
+      Files.delete(directory);
+    }
+
+    if (write) {
+      Regression.writeBaselines(baselines, results);
+      System.out.println(String.format("Wrote %d baselines to %s", results.size(), baselines));
+    } else if (failures > 0) {
+      System.out.println(String.format("%d regressions", failures));
+      System.exit(1);
+    } else {
+      System.out.println("No regressions");
+    }
+  }
+
+  /** Generates every in memory corpus from a fixed seed, so each run compresses the same bytes. */
+  private static Map<String, byte[]> corpora() {
+    Map<String, byte[]> corpora = new LinkedHashMap<String, byte[]>();
+    Random random = new Random(0x4D5A4950L);
+
+    byte[] uniform = new byte[CORPUS_SIZE];
+    random.nextBytes(uniform);
+    corpora.put("uniform", uniform);
+
+    /** The probability of the byte of rank k is proportional to 1 / k, and bytes are drawn by a binary search of the cumulative distribution. */
+    double[] cumulative = new double[256];
+    for (int k = 0; k < 256; k++) {
+      cumulative[k] = (k > 0 ? cumulative[k - 1] : 0) + 1.0 / (k + 1);
+    }
+
+    byte[] zipf = new byte[CORPUS_SIZE];
+    for (int i = 0; i < zipf.length; i++) {
+      int k = Arrays.binarySearch(cumulative, random.nextDouble() * cumulative[255]);
+      zipf[i] = (byte) (k >= 0 ? k : -k - 1);
+    }
+    corpora.put("zipf", zipf);
+
+    byte[] single = new byte[CORPUS_SIZE];
+    Arrays.fill(single, (byte) 'a');
+    corpora.put("single", single);
+
+    byte[] two = new byte[CORPUS_SIZE];
+    for (int i = 0; i < two.length; i++) {
+      two[i] = (byte) (random.nextInt(10) < 3 ? 'a' : 'b');
+    }
+    corpora.put("two", two);
+
+    /** Every byte appears equally often, in a new random order within every 256 bytes. */
+    byte[] all = new byte[CORPUS_SIZE];
+    for (int i = 0; i < all.length; i += 256) {
+      for (int k = 0; k < 256; k++) {
+        int j = random.nextInt(k + 1);
+        all[i + k] = all[i + j];
+        all[i + j] = (byte) k;
+      }
+    }
+    corpora.put("all256", all);
+
+    corpora.put("empty", new byte[0]);
+    return corpora;
+  }
+
+  /** Compresses and decompresses a corpus between buffers, keeping the fastest of the repetitions within MEASURE_NANOS after one repetition which is not measured.
+   * @return The ratio, compression throughput and decompression throughput, in MB/s.
+   */
+  private static double[] measure(byte[] bytes, int level) {
+    HuffmanCoding coding = new HuffmanCoding();
+    coding.setLevel(level);
+
+    ByteBuffer src = ByteBuffer.wrap(bytes), dst = ByteBuffer.allocate((int) coding.maxEncodedLength(bytes.length));
+    ByteBuffer decoded = ByteBuffer.allocate(bytes.length);
+    long encodeTime = Long.MAX_VALUE, decodeTime = Long.MAX_VALUE;
+
+    for (long r = 0, total = 0; r <= 1 || total < MEASURE_NANOS; r++) {
+      src.rewind();
+      dst.clear();
+      long start = System.nanoTime();
+      coding.encode(src, dst);
+      long elapsed = System.nanoTime() - start;
+      encodeTime = (r > 0 ? Math.min(encodeTime, elapsed) : encodeTime);
+      total += (r > 0 ? elapsed : 0);
+    }
+
+    dst.flip();
+
+    for (long r = 0, total = 0; r <= 1 || total < MEASURE_NANOS; r++) {
+      dst.rewind();
+      decoded.clear();
+      long start = System.nanoTime();
+      HuffmanCoding.decode(dst, decoded);
+      long elapsed = System.nanoTime() - start;
+      decodeTime = (r > 0 ? Math.min(decodeTime, elapsed) : decodeTime);
+      total += (r > 0 ? elapsed : 0);
+    }
+
+    if (decoded.position() != bytes.length || !Arrays.equals(bytes, decoded.array())) {
+      return null;
+    }
+
+    return Regression.result(bytes.length, dst.limit(), encodeTime, decodeTime);
+  }
+
+  /** Writes a sparse File of a length, consisting of zeros and a few random ranges, compresses it using streamFile() and decompresses it using the ParallelHuffmanDecoder, then compares the decompressed File a chunk at a time with a second copy of the sparse File. Both Files are only written to disk where they are not zero, so a File of several GB takes little space.
+   * @return The ratio, compression throughput and decompression throughput, in MB/s.
+   */
+  private static double[] measureSparse(Path path, long length) throws IOException {
+    Path original = Paths.get(path + ".original");
+    Regression.writeSparse(path, length);
+    Regression.writeSparse(original, length);
+
+    HuffmanCoding coding = new HuffmanCoding();
+    coding.setMaxBufferBytes(SPARSE_BUDGET);
+    long start = System.nanoTime();
+    String compressed = coding.streamFile(path.toString());
+    long encodeTime = System.nanoTime() - start;
+
+    Files.delete(path);
+    start = System.nanoTime();
+    String decompressed = ParallelHuffmanDecoder.decompressFile(compressed);
+    long decodeTime = System.nanoTime() - start;
+
+    if (compressed.isEmpty() || decompressed.isEmpty() || !Regression.equal(original, path)) {
+      return null;
+    }
+
+    return Regression.result(length, Files.size(Paths.get(compressed)), encodeTime, decodeTime);
+  }
+
+  /** Writes a sparse File of a length, where the ranges which are not zero only depend on the length. */
+  private static void writeSparse(Path path, long length) throws IOException {
+    Random random = new Random(length);
+
+    try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+      file.setLength(length);
+
+      for (int k = 0; k < 64 && length > 0; k++) {
+        byte[] range = new byte[(int) Math.min(length, 1 << 16)];
+        random.nextBytes(range);
+        file.seek((long) (random.nextDouble() * (length - range.length)));
+        file.write(range);
+      }
+    }
+  }
+
+  /** Compares two Files a chunk at a time, so Files of any size can be compared. */
+  private static boolean equal(Path first, Path second) throws IOException {
+    try (FileChannel a = FileChannel.open(first, StandardOpenOption.READ); FileChannel b = FileChannel.open(second, StandardOpenOption.READ)) {
+      if (a.size() != b.size()) {
+        return false;
+      }
+
+      ByteBuffer x = ByteBuffer.allocateDirect(1 << 20), y = ByteBuffer.allocateDirect(1 << 20);
+
+      for (long position = 0; position < a.size(); position += x.limit()) {
+        x.clear();
+        y.clear();
+        x.limit((int) Math.min(x.capacity(), a.size() - position));
+        y.limit(x.limit());
+
+        while (x.hasRemaining() && a.read(x, position + x.position()) >= 0);
+        while (y.hasRemaining() && b.read(y, position + y.position()) >= 0);
+
+        if (!x.flip().equals(y.flip())) {
+          return false;
+        }
+      }
+    }
+
+    return true;
+  }
+
+  /** Measures the throughput of a fixed reference loop in MB/s, which counts the bytes of a corpus like a frequency table, keeping the fastest of the repetitions within MEASURE_NANOS. */
+  private static double reference(byte[] bytes) {
+    int[] counts = new int[256];
+    long time = Long.MAX_VALUE;
+
+    for (long r = 0, total = 0; r <= 1 || total < MEASURE_NANOS; r++) {
+      Arrays.fill(counts, 0);
+      long start = System.nanoTime();
+      for (byte b : bytes) {
+        counts[b & 0xff]++;
+      }
+      long elapsed = System.nanoTime() - start;
+      time = (r > 0 ? Math.min(time, elapsed) : time);
+      total += (r > 0 ? elapsed : 0);
+    }
+
+    /** The counts are checked, so the reference loop cannot be removed as unused. */
+    if (Arrays.stream(counts).sum() != bytes.length) {
+      throw new IllegalStateException("The reference loop miscounted");
+    }
+
+    return bytes.length / 1e6 / Math.max(time / 1e9, 1e-9);
+  }
+
+  /** Appends the compression and decompression throughput relative to the reference throughput to a result, or returns null if the corpus did not round trip. */
+  private static double[] relative(double[] result, double reference) {
+    return (result == null ? null : new double[] {result[0], result[1], result[2], result[1] / reference, result[2] / reference});
+  }
+
+  private static double[] result(long length, long size, long encodeTime, long decodeTime) {
+    /** An empty corpus has a ratio of 1, since its compressed bytes do not contain any Blocks. */
+    return new double[] {(length > 0 ? (double) length / Math.max(size, 1) : 1), length / 1e6 / Math.max(encodeTime / 1e9, 1e-9), length / 1e6 / Math.max(decodeTime / 1e9, 1e-9)};
+  }
+
+  /** Prints the result of a corpus, and compares its ratio and relative throughput against its baseline.
+   * @return 1 if the corpus did not round trip, its ratio regressed, or its throughput regressed while strict, and 0 otherwise.
+   */
+  private static int report(String name, long length, double[] result, double[] baseline, double threshold, boolean strict) {
+    if (result == null) {
+      System.out.println(String.format("%-16s %10d %10s %8s %15s %17s %s", name, length, "-", "-", "-", "-", "FAILED ROUND TRIP"));
+      return 1;
+    }
+
+    String verdict = "OK";
+    boolean failed = false;
+
+    if (baseline == null) {
+      verdict = "NO BASELINE";
+    } else if (result[0] < baseline[0] * (1 - RATIO_THRESHOLD)) {
+      verdict = String.format("RATIO REGRESSED FROM %.3f", baseline[0]);
+      failed = true;
+    } else if (result[3] < baseline[1] * (1 - threshold)) {
+      verdict = String.format("COMPRESSION SLOWER: %.6fx OF THE REFERENCE, BASELINE %.6fx", result[3], baseline[1]);
+      failed = strict;
+    } else if (result[4] < baseline[2] * (1 - threshold)) {
+      verdict = String.format("DECOMPRESSION SLOWER: %.6fx OF THE REFERENCE, BASELINE %.6fx", result[4], baseline[2]);
+      failed = strict;
+    }
+
+    System.out.println(String.format("%-16s %10d %10d %8.3f %15.1f %17.1f %s", name, length, Math.round(length / result[0]), result[0], result[1], result[2], verdict));
+    return (failed ? 1 : 0);
+  }
+
+  /** Reads the baselines, where each line consists of the name of a corpus, its ratio, and its compression and decompression throughput relative to the reference loop. Lines starting with # are comments. */
+  private static Map<String, double[]> readBaselines(Path path) throws IOException {
+    Map<String, double[]> baselines = new LinkedHashMap<String, double[]>();
+
+    if (!Files.exists(path)) {
+      System.out.println(String.format("No baselines found at %s", path));
+      return baselines;
+    }
+
+    for (String line : Files.readAllLines(path)) {
+      String[] fields = line.trim().split("\\s+");
+
+      if (fields.length == 4 && !fields[0].startsWith("#")) {
+        baselines.put(fields[0], new double[] {Double.parseDouble(fields[1]), Double.parseDouble(fields[2]), Double.parseDouble(fields[3])});
+      }
+    }
+
+    return baselines;
+  }
+
+  private static void writeBaselines(Path path, Map<String, double[]> results) throws IOException {
+    try (BufferedWriter out = Files.newBufferedWriter(path)) {
+      out.write("# corpus-level ratio compress decompress, where throughput is relative to the reference loop, written by java Regression -w\n");
+
+      for (Map.Entry<String, double[]> result : results.entrySet()) {
+        double[] r = result.getValue();
+        out.write(String.format("%s %.4f %.6f %.6f\n", result.getKey(), r == null ? 0 : r[0], r == null ? 0 : r[3], r == null ? 0 : r[4]));
+      }
+    }
+  }
+}
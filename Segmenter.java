@@ -0,0 +1,194 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/** A Segmenter, which splits bytes into Blocks where their frequency table changes, such as an archive containing text Files followed by binary Files. A singular Huffman Binary Tree fits neither part well, and Blocks of a fixed size either split each part into many Blocks with their own Trees, or contain both parts.
+ * The bytes are read in windows, and the frequency table of each window is compared to the frequency table of the current Block using the Kullback-Leibler divergence, which is the amount of bits per byte lost by compressing the window using bit sequences built for the current Block instead of its own. A new Block starts at a window when the bits lost over the window exceed the size of a new Huffman Binary Tree, so Trees are only written where they pay off, and otherwise the window is added to the current Block. Each Block still chooses its own method, so a Block may reuse the Huffman Binary Tree of the previous Block.
+ * @author Henry Wang
+ */
+public class Segmenter {
+  /** The default amount of bytes within each window. */
+  public static final int DEFAULT_WINDOW = 1 << 13;
+  /** The default smallest divergence, in bits per byte, at which a new Block is started. */
+  public static final double DEFAULT_THRESHOLD = 0.05;
+  private final int window;
+  private final double threshold;
+
+  /** A constructor which initializes a Segmenter using DEFAULT_WINDOW and DEFAULT_THRESHOLD. */
+  public Segmenter() {
+    this(DEFAULT_WINDOW, DEFAULT_THRESHOLD);
+  }
+
+  /** A constructor which initializes a Segmenter.
+   * @param window The amount of bytes within each window, which is also the smallest Block, at least 256. Smaller windows find changes more precisely, but their frequency tables are less accurate.
+   * @param threshold The smallest divergence, in bits per byte, at which a new Block is started, even if the bits lost exceed the size of a new Huffman Binary Tree.
+   */
+  public Segmenter(int window, double threshold) {
+    this.window = Math.max(window, 256);
+    this.threshold = threshold;
+  }
+
+  /** A method which splits a range of bytes into Blocks, starting a new Block wherever the frequency table of the bytes changes.
+   * @param data The buffer containing the bytes, which may be a direct or memory mapped buffer.
+   * @param offset The index of the first byte.
+   * @param length The amount of bytes.
+   * @param blockSize The maximum amount of bytes within each Block, or 0 for no maximum.
+   * @return The amount of bytes within each Block, in order.
+   */
+  public int[] split(ByteBuffer data, int offset, int length, int blockSize) {
+    return this.split(data, offset, length, blockSize, null);
+  }
+
+  /** A method which splits a range of bytes into Blocks, starting a new Block wherever the frequency table of the bytes changes, and keeps the frequency table of each Block, which was already counted from its windows, so the Blocks do not count their bytes again.
+   * @param data The buffer containing the bytes, which may be a direct or memory mapped buffer.
+   * @param offset The index of the first byte.
+   * @param length The amount of bytes.
+   * @param blockSize The maximum amount of bytes within each Block, or 0 for no maximum.
+   * @param frequencies The list which receives the frequency table of each Block, indexed by byte + 128, in order, or null if the frequency tables are not required.
+   * @return The amount of bytes within each Block, in order.
+   */
+  public int[] split(ByteBuffer data, int offset, int length, int blockSize, List<int[]> frequencies) {
+    int max = (blockSize > 0 ? blockSize : Integer.MAX_VALUE);
+
+    /** Blocks no larger than a window cannot be split any further. */
+    if (max <= this.window) {
+      int[] lengths = new int[(int) (((long) length + max - 1) / max)];
+      for (int i = 0; i < lengths.length; i++) {
+        lengths[i] = Math.min(max, length - i * max);
+
+        if (frequencies != null) {
+          frequencies.add(HuffmanBlock.frequencies(data, offset + i * max, lengths[i]));
+        }
+      }
+      return lengths;
+    }
+
+    int[] lengths = new int[16];
+    int count = 0, start = offset, end = offset + length;
+    int[] block = new int[257];
+    long total = 0;
+    /** run: The index within the frequency table of the only byte within the current Block, or -1 if the Block is empty or contains different bytes. */
+    int run = -1;
+
+    for (int position = offset; position < end; position += this.window) {
+      int size = Math.min(this.window, end - position);
+
+      /** While the current Block repeats a singular byte, a window repeating the same byte cannot change the frequency table, so its bytes are only compared instead of counted and judged. */
+      boolean repeated = (run >= 0 && Segmenter.repeats(data, position, size, (byte) (run - 128)));
+      int[] freq = (repeated ? null : HuffmanBlock.frequencies(data, position, size));
+
+      /** A window shorter than a whole window is too small to judge, so it is added to the current Block. */
+      boolean split = (!repeated && total > 0 && size == this.window && this.shifted(freq, size, block, total));
+
+      if (split || (long) position - start + size > max) {
+        if (count == lengths.length) {
+          lengths = Arrays.copyOf(lengths, count * 2);
+        }
+
+        lengths[count++] = position - start;
+        start = position;
+        block = Segmenter.finish(block, frequencies);
+        total = 0;
+      }
+
+      if (repeated) {
+        block[run] += size;
+      } else {
+        for (int i = 0; i < 257; i++) {
+          block[i] += freq[i];
+        }
+        run = Segmenter.only(block);
+      }
+      total += size;
+    }
+
+    if (end > start) {
+      if (count == lengths.length) {
+        lengths = Arrays.copyOf(lengths, count + 1);
+      }
+      lengths[count++] = end - start;
+      Segmenter.finish(block, frequencies);
+    }
+
+    return Arrays.copyOf(lengths, count);
+  }
+
+  /** Ends the frequency table of a Block, adding it to the list if the frequency tables are kept, and returns an empty frequency table for the next Block. A Block is at most blockSize bytes, which is an int, so its frequencies fit within ints. */
+  private static int[] finish(int[] block, List<int[]> frequencies) {
+    if (frequencies == null) {
+      Arrays.fill(block, 0);
+      return block;
+    }
+
+    frequencies.add(block);
+    return new int[257];
+  }
+
+  /** Checks whether every byte within a range is the same byte, comparing 8 bytes at a time. */
+  private static boolean repeats(ByteBuffer data, int offset, int length, byte b) {
+    long pattern = (b & 0xffL) * 0x0101010101010101L;
+    int i = offset, end = offset + length;
+
+    for (; i + 8 <= end; i += 8) {
+      if (data.getLong(i) != pattern) {
+        return false;
+      }
+    }
+
+    for (; i < end; i++) {
+      if (data.get(i) != b) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /** Finds the index of the only byte with a frequency above 0, or returns -1 if there is no such byte or more than one. */
+  private static int only(int[] freq) {
+    int index = -1;
+
+    for (int i = 0; i < 256; i++) {
+      if (freq[i] > 0) {
+        if (index >= 0) {
+          return -1;
+        }
+        index = i;
+      }
+    }
+
+    return index;
+  }
+
+  /** Checks whether the bytes of a window are better compressed using a new Huffman Binary Tree than using the Tree of the current Block. Bytes which do not appear within the current Block are counted as half a byte, so they cost a large but finite amount of bits.
+   * @param freq The frequency table of the window, indexed by byte + 128.
+   * @param size The amount of bytes within the window.
+   * @param block The frequency table of the current Block, indexed by byte + 128.
+   * @param total The amount of bytes within the current Block.
+   * @return Whether a new Block should start at the window.
+   */
+  private boolean shifted(int[] freq, int size, int[] block, long total) {
+    double divergence = 0;
+    int distinct = 0;
+
+    for (int i = 0; i < 256; i++) {
+      if (freq[i] > 0) {
+        double p = (double) freq[i] / size, q = (block[i] + 0.5) / (total + 128.0);
+        divergence += p * Math.log(p / q);
+        distinct++;
+      }
+    }
+
+    divergence /= Math.log(2);
+
+    /** A bracket representation of a Huffman Binary Tree with n leaves requires at least 4n - 3 characters. */
+    return divergence >= this.threshold && divergence * size / 8 > 4 * distinct - 3;
+  }
+
+  /** A getter method which returns the amount of bytes within each window, which is also the smallest Block.
+   * @return The amount of bytes within each window.
+   */
+  public int getWindow() {
+    return this.window;
+  }
+}
@@ -0,0 +1,156 @@
+import java.util.Arrays;
+
+/** A Suffix Array builder, which sorts every suffix of a sequence of symbols in linear time using Induced Sorting (SA-IS, Nong, Zhang and Chan). Only primitive arrays are used, so sorting large Blocks does not allocate an object per suffix.
+ * Every suffix is either S-type (smaller than the following suffix) or L-type (larger than the following suffix). The leftmost S-type suffixes of each run (LMS suffixes) are sorted first, recursively if necessary, and the order of every other suffix is induced from them by scanning the Suffix Array twice.
+ * @author Henry Wang
+ */
+public class SuffixArray {
+  /** Suffix Arrays are built without any state, so the class only consists of static methods. */
+  private SuffixArray() {
+  }
+
+  /** A method which builds the Suffix Array of a sequence of symbols. The last symbol must be a sentinel of 0, which appears nowhere else, and every other symbol must be within the range [1, alphabet).
+   * @param s The symbols, ending with the sentinel.
+   * @param n The amount of symbols, including the sentinel.
+   * @param alphabet The amount of distinct values a symbol may have.
+   * @return The starting index of every suffix, in sorted order.
+   */
+  public static int[] build(int[] s, int n, int alphabet) {
+    int[] sa = new int[n];
+
+    /** A sequence consisting of only the sentinel has no LMS suffixes to induce from. */
+    if (n == 1) {
+      return sa;
+    }
+
+    SuffixArray.sais(s, sa, n, alphabet);
+    return sa;
+  }
+
+  /** Sorts the suffixes of s into sa. */
+  private static void sais(int[] s, int[] sa, int n, int k) {
+    /** type: Whether each suffix is S-type, which is decided from right to left. */
+    boolean[] type = new boolean[n];
+    type[n - 1] = true;
+
+    for (int i = n - 2; i >= 0; i--) {
+      type[i] = (s[i] < s[i + 1] || (s[i] == s[i + 1] && type[i + 1]));
+    }
+
+    /** Places every LMS suffix at the end of the bucket of its first symbol, and induces the order of the other suffixes. This sorts the LMS substrings, but not yet the LMS suffixes. */
+    int[] bucket = new int[k];
+    Arrays.fill(sa, -1);
+    SuffixArray.buckets(s, bucket, n, k, true);
+
+    for (int i = 1; i < n; i++) {
+      if (SuffixArray.lms(type, i)) {
+        sa[--bucket[s[i]]] = i;
+      }
+    }
+
+    SuffixArray.induce(s, sa, type, bucket, n, k);
+
+    /** Moves the sorted LMS substrings to the front of the Suffix Array. */
+    int m = 0;
+    for (int i = 0; i < n; i++) {
+      if (SuffixArray.lms(type, sa[i])) {
+        sa[m++] = sa[i];
+      }
+    }
+
+    /** Names each LMS substring by its rank, where equal substrings share a name. There are at most n / 2 LMS substrings, so the names fit after them, indexed by half of their position. */
+    Arrays.fill(sa, m, n, -1);
+    int names = 0, previous = -1;
+
+    for (int i = 0; i < m; i++) {
+      int position = sa[i];
+      boolean different = false;
+
+      for (int d = 0; ; d++) {
+        if (previous == -1 || s[position + d] != s[previous + d] || type[position + d] != type[previous + d]) {
+          different = true;
+          break;
+        } else if (d > 0 && (SuffixArray.lms(type, position + d) || SuffixArray.lms(type, previous + d))) {
+          break;
+        }
+      }
+
+      if (different) {
+        names++;
+        previous = position;
+      }
+
+      sa[m + (position >> 1)] = names - 1;
+    }
+
+    int[] reduced = new int[m], order = new int[m];
+    for (int i = m, j = 0; i < n; i++) {
+      if (sa[i] >= 0) {
+        reduced[j++] = sa[i];
+      }
+    }
+
+    /** If every name is unique, the order of the LMS suffixes follows directly from the names. Otherwise, the reduced sequence of names is sorted recursively. */
+    if (names < m) {
+      SuffixArray.sais(reduced, order, m, names);
+    } else {
+      for (int i = 0; i < m; i++) {
+        order[reduced[i]] = i;
+      }
+    }
+
+    /** Maps the sorted reduced suffixes back to the positions of the LMS suffixes, places them at the end of their buckets in sorted order, and induces the final order of every suffix. */
+    for (int i = 1, j = 0; i < n; i++) {
+      if (SuffixArray.lms(type, i)) {
+        reduced[j++] = i;
+      }
+    }
+
+    Arrays.fill(sa, -1);
+    SuffixArray.buckets(s, bucket, n, k, true);
+
+    for (int i = m - 1; i >= 0; i--) {
+      int j = reduced[order[i]];
+      sa[--bucket[s[j]]] = j;
+    }
+
+    SuffixArray.induce(s, sa, type, bucket, n, k);
+  }
+
+  /** Induces the order of the L-type suffixes from left to right, and then the order of the S-type suffixes from right to left. */
+  private static void induce(int[] s, int[] sa, boolean[] type, int[] bucket, int n, int k) {
+    SuffixArray.buckets(s, bucket, n, k, false);
+    for (int i = 0; i < n; i++) {
+      int j = sa[i] - 1;
+      if (j >= 0 && !type[j]) {
+        sa[bucket[s[j]]++] = j;
+      }
+    }
+
+    SuffixArray.buckets(s, bucket, n, k, true);
+    for (int i = n - 1; i >= 0; i--) {
+      int j = sa[i] - 1;
+      if (j >= 0 && type[j]) {
+        sa[--bucket[s[j]]] = j;
+      }
+    }
+  }
+
+  /** Computes the start (or end) of the bucket of each symbol, which is the range of the Suffix Array containing the suffixes starting with that symbol. */
+  private static void buckets(int[] s, int[] bucket, int n, int k, boolean end) {
+    Arrays.fill(bucket, 0);
+    for (int i = 0; i < n; i++) {
+      bucket[s[i]]++;
+    }
+
+    for (int c = 0, sum = 0; c < k; c++) {
+      sum += bucket[c];
+      bucket[c] = (end ? sum : sum - bucket[c]);
+    }
+  }
+
+  /** Checks whether the suffix at a position is a leftmost S-type suffix. */
+  private static boolean lms(boolean[] type, int i) {
+    return (i > 0 && type[i] && !type[i - 1]);
+  }
+}
@@ -0,0 +1,706 @@
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/** A command line harness of small targeted tests, each of which checks one class against a simple reference, including edge cases such as empty inputs and singular symbols.
+ * Tests which read or write Files do so within a temporary directory, and the harness exits with status 1 if any test fails.
+ * Usage: java Tests
+ * @author Henry Wang
+ */
+public class Tests {
+  /** The seed from which every random input is generated, so each run tests the same bytes. */
+  private static final long SEED = 0x4D5A4950L;
+
+  /** The temporary directory of the current test, or null if the test has not asked for one. */
+  private static Path directory;
+
+  /** A test, which throws an exception if it fails. */
+  private interface Test {
+    void run() throws Exception;
+  }
+
+  /** The harness only consists of its main method. */
+  private Tests() {
+  }
+
+  public static void main(String[] args) throws IOException {
+    Map<String, Test> tests = new LinkedHashMap<String, Test>();
+    tests.put("IntHuffmanCodeTable round trip", Tests::intCodeTable);
+    tests.put("IntIntMap", Tests::intIntMap);
+    tests.put("HuffmanColumnCoding", Tests::columnCoding);
+    tests.put("MatchFinder tokens", Tests::matchFinder);
+    tests.put("SuffixArray", Tests::suffixArray);
+    tests.put("BurrowsWheeler round trip", Tests::burrowsWheeler);
+    tests.put("IntHuffmanCodeTable length limit", Tests::intCodeTableLimit);
+    tests.put("DeflateCoding against java.util.zip", Tests::deflate);
+    tests.put("BlockIndex append", Tests::blockIndex);
+    tests.put("CompactHuffmanTree round trip", Tests::compactTree);
+    tests.put("HuffmanCodeTable length limit", Tests::codeTableLimit);
+    tests.put("analyze", Tests::analyze);
+    tests.put("HuffmanRecordStore torn flush", Tests::recordStore);
+    tests.put("Segmenter", Tests::segmenter);
+    tests.put("AsyncHuffmanCoding cancellation", Tests::asyncCancel);
+    tests.put("streamFile memory budget", Tests::streamBudget);
+    tests.put("Decompressed path", Tests::decompressedPath);
+    tests.put("Sampled RUN Blocks", Tests::sampledRun);
+    tests.put("Sampled Code Tables", Tests::sampledTable);
+    tests.put("ParallelHuffmanDecoder failure", Tests::parallelFailure);
+    int failures = 0;
+
+    for (Map.Entry<String, Test> test : tests.entrySet()) {
+      try {
+        test.getValue().run();
+        System.out.println(String.format("%-40s OK", test.getKey()));
+      } catch (Exception | AssertionError e) {
+        System.out.println(String.format("%-40s FAILED: %s", test.getKey(), e));
+        failures++;
+      } finally {
+        if (Tests.directory != null) {
+          Tests.delete(Tests.directory);
+          Tests.directory = null;
+        }
+      }
+    }
+
+    if (failures > 0) {
+      System.out.println(String.format("%d of %d tests failed", failures, tests.size()));
+      System.exit(1);
+    } else {
+      System.out.println(String.format("All %d tests passed", tests.size()));
+    }
+  }
+
+  /** Fails the current test with a message unless a condition holds. */
+  private static void check(boolean condition, String message, Object... args) {
+    if (!condition) {
+      throw new AssertionError(String.format(message, args));
+    }
+  }
+
+  /** Creates the temporary directory of the current test, which is deleted once the test ends. */
+  private static Path directory() throws IOException {
+    if (Tests.directory == null) {
+      Tests.directory = Files.createTempDirectory("tests");
+    }
+    return Tests.directory;
+  }
+
+  /** Deletes a directory along with every File within it. */
+  private static void delete(Path directory) throws IOException {
+    try (Stream<Path> paths = Files.list(directory)) {
+      for (Path path : (Iterable<Path>) paths::iterator) {
+        Files.delete(path);
+      }
+    }
+    Files.delete(directory);
+  }
+
+  /** Generates frequencies following the Fibonacci sequence, which builds the deepest possible Huffman Binary Tree, so every length limit has to shorten it. */
+  private static int[] fibonacci(int symbols) {
+    int[] frequencies = new int[symbols];
+
+    for (int i = 0; i < symbols; i++) {
+      frequencies[i] = (i < 2 ? 1 : Math.min(frequencies[i - 1] + frequencies[i - 2], 1 << 24));
+    }
+
+    return frequencies;
+  }
+
+  /** Sums 2^-length over the lengths of the bit sequences, which is at most 1 for any prefix free code (the Kraft inequality). */
+  private static double kraft(int[] lengths) {
+    double sum = 0;
+
+    for (int length : lengths) {
+      sum += Math.pow(2, -length);
+    }
+
+    return sum;
+  }
+
+  /** Checks that symbols round trip through an IntHuffmanCodeTable, and that its bracket representation parses back to the same lengths. */
+  private static void intCodeTable() {
+    Random random = new Random(SEED);
+    int[] values = new int[10000];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = (int) Math.min(285, Math.abs(random.nextGaussian() * 40));
+    }
+
+    IntHuffmanCodeTable table = IntHuffmanCodeTable.fromValues(values, 0, values.length);
+    IntHuffmanCodeTable parsed = IntHuffmanCodeTable.parse(table.toString());
+    BitWriter out = new BitWriter();
+    table.encode(values, 0, values.length, out);
+    out.flush();
+
+    int[] decoded = new int[values.length];
+    parsed.decode(ByteBuffer.wrap(out.toByteArray()), 0, decoded, 0, decoded.length);
+    for (int i = 0; i < values.length; i++) {
+      Tests.check(decoded[i] == values[i], "symbol %d decoded as %d instead of %d", i, decoded[i], values[i]);
+    }
+
+    for (int value : values) {
+      Tests.check(table.getLength(value) == parsed.getLength(value), "symbol %d has a different length after parsing", value);
+    }
+  }
+
+  /** Checks an IntIntMap against a HashMap, including negative keys and enough keys to grow the table several times. */
+  private static void intIntMap() {
+    IntIntMap map = new IntIntMap(4);
+    HashMap<Integer, Integer> expected = new HashMap<Integer, Integer>();
+    Random random = new Random(SEED);
+
+    for (int i = 0; i < 100000; i++) {
+      int key = random.nextInt(20000) - 10000, amount = random.nextInt(10);
+
+      if (random.nextBoolean()) {
+        map.add(key, amount);
+        expected.merge(key, amount, Integer::sum);
+      } else {
+        map.put(key, amount);
+        expected.put(key, amount);
+      }
+    }
+
+    Tests.check(map.size() == expected.size(), "size is %d instead of %d", map.size(), expected.size());
+    for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+      Tests.check(map.get(entry.getKey(), -1) == entry.getValue(), "key %d has the wrong value", entry.getKey());
+    }
+    Tests.check(map.get(20000, -1) == -1, "a missing key was found");
+  }
+
+  /** Checks that columns round trip, including an empty column, a column of one repeated value, and the extreme values. */
+  private static void columnCoding() {
+    Random random = new Random(SEED);
+    long[] mixed = new long[5000];
+    for (int i = 0; i < mixed.length; i++) {
+      mixed[i] = (i % 10 == 0 ? random.nextLong() : random.nextInt(1000) - 500);
+    }
+    long[] repeated = new long[1000];
+    Arrays.fill(repeated, 42);
+
+    for (long[] values : new long[][] {new long[0], new long[] {0}, repeated, new long[] {Long.MIN_VALUE, Long.MAX_VALUE, -1, 1}, mixed}) {
+      byte[] compressed = HuffmanColumnCoding.encode(values);
+      Tests.check(compressed.length <= HuffmanColumnCoding.maxEncodedLength(values.length), "%d values exceed maxEncodedLength()", values.length);
+      Tests.check(Arrays.equals(HuffmanColumnCoding.decode(compressed), values), "%d values do not round trip", values.length);
+    }
+  }
+
+  /** Checks that the tokens of a Match Finder rebuild the bytes at every level, with every length and distance within range, for both byte orders of the buffer. */
+  private static void matchFinder() {
+    Random random = new Random(SEED);
+    byte[] bytes = new byte[50000];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (i > 100 && random.nextInt(4) > 0 ? bytes[i - 1 - random.nextInt(100)] : (byte) random.nextInt(4));
+    }
+
+    for (ByteOrder order : new ByteOrder[] {ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+      for (int level = 1; level <= 9; level++) {
+        MatchFinder matcher = new MatchFinder(1 << 12, level);
+        int count = matcher.parse(ByteBuffer.wrap(bytes).order(order), 0, bytes.length);
+        byte[] rebuilt = new byte[bytes.length];
+        int position = 0;
+
+        for (int i = 0; i < count; i++) {
+          int length = matcher.getLength(i), value = matcher.getValue(i);
+
+          if (length == 0) {
+            rebuilt[position++] = (byte) value;
+          } else {
+            Tests.check(length >= MatchFinder.MIN_MATCH && length <= MatchFinder.MAX_MATCH, "length %d at level %d", length, level);
+            Tests.check(value >= 1 && value <= position && value <= matcher.getWindow(), "distance %d at level %d", value, level);
+
+            for (int k = 0; k < length; k++, position++) {
+              rebuilt[position] = rebuilt[position - value];
+            }
+          }
+        }
+
+        Tests.check(position == bytes.length && Arrays.equals(rebuilt, bytes), "tokens do not rebuild the bytes at level %d (%s)", level, order);
+      }
+    }
+  }
+
+  /** Checks Suffix Arrays against sorting every suffix, for small alphabets with many repeats and for the shortest sequences. */
+  private static void suffixArray() {
+    Random random = new Random(SEED);
+
+    for (int n = 1; n <= 300; n += (n < 10 ? 1 : 37)) {
+      for (int alphabet : new int[] {2, 3, 257}) {
+        int[] s = new int[n];
+        for (int i = 0; i < n - 1; i++) {
+          s[i] = 1 + random.nextInt(alphabet - 1);
+        }
+
+        int[] sa = SuffixArray.build(s, n, alphabet);
+        Integer[] expected = new Integer[n];
+        for (int i = 0; i < n; i++) {
+          expected[i] = i;
+        }
+        int length = n;
+        Arrays.sort(expected, (a, b) -> Arrays.compare(s, a, length, s, b, length));
+
+        for (int i = 0; i < n; i++) {
+          Tests.check(sa[i] == expected[i], "suffix %d of %d symbols over %d is %d instead of %d", i, n, alphabet, sa[i], expected[i]);
+        }
+      }
+    }
+  }
+
+  /** Checks that Blocks using the Burrows-Wheeler Transform round trip, including Blocks of one and two bytes and Blocks of a singular run. */
+  private static void burrowsWheeler() {
+    Random random = new Random(SEED);
+    byte[] text = "the quick brown fox jumps over the lazy dog, again and again and again. ".repeat(200).getBytes();
+    byte[] runs = new byte[5000];
+    for (int i = 0; i < runs.length; i++) {
+      runs[i] = (byte) (i / 700);
+    }
+    byte[] two = new byte[4000];
+    for (int i = 0; i < two.length; i++) {
+      two[i] = (byte) (random.nextBoolean() ? 'a' : 'b');
+    }
+
+    for (byte[] bytes : new byte[][] {new byte[] {7}, new byte[] {1, 2}, text, runs, two}) {
+      ByteBuffer compressed = ByteBuffer.allocate((int) HuffmanCoding.maxEncodedLength(bytes.length, 0));
+      HuffmanCoding.encode(ByteBuffer.wrap(bytes), compressed, 0, null, new BurrowsWheeler());
+      compressed.flip();
+      ByteBuffer decompressed = ByteBuffer.allocate(bytes.length);
+      HuffmanCoding.decode(compressed, decompressed);
+      Tests.check(Arrays.equals(decompressed.array(), bytes), "%d bytes do not round trip", bytes.length);
+    }
+  }
+
+  /** Checks that length limited lengths for larger alphabets stay within the limit, are prefix free, and are never longer than the unlimited lengths of more frequent symbols. */
+  private static void intCodeTableLimit() {
+    Random random = new Random(SEED);
+
+    for (int symbols : new int[] {2, 19, 30, 286}) {
+      int[] frequencies = (symbols <= 30 ? Tests.fibonacci(symbols) : new int[symbols]);
+      if (symbols > 30) {
+        for (int i = 0; i < symbols; i++) {
+          frequencies[i] = (random.nextInt(4) == 0 ? 0 : 1 + random.nextInt(1 << random.nextInt(20)));
+        }
+      }
+
+      for (int limit : new int[] {7, 9, 15}) {
+        if ((1 << limit) < symbols) {
+          continue;
+        }
+
+        int[] lengths = IntHuffmanCodeTable.lengths(frequencies, limit);
+        Tests.check(Tests.kraft(lengths) <= 1, "%d symbols with limit %d are not prefix free", symbols, limit);
+
+        for (int i = 0; i < symbols; i++) {
+          Tests.check(lengths[i] > 0 && lengths[i] <= limit, "symbol %d has length %d with limit %d", i, lengths[i], limit);
+
+          for (int j = 0; j < symbols; j++) {
+            Tests.check(frequencies[i] <= frequencies[j] || lengths[i] <= lengths[j], "symbol %d is more frequent than %d but longer", i, j);
+          }
+        }
+      }
+    }
+  }
+
+  /** Checks that gzip Files written by DeflateCoding are read back by java.util.zip, with and without a Match Finder. */
+  private static void deflate() throws IOException {
+    Random random = new Random(SEED);
+    byte[] text = "to be or not to be, that is the question. ".repeat(5000).getBytes();
+    byte[] noise = new byte[300000];
+    random.nextBytes(noise);
+    byte[] run = new byte[200000];
+
+    for (byte[] bytes : new byte[][] {new byte[0], new byte[] {1}, text, noise, run}) {
+      for (MatchFinder matcher : new MatchFinder[] {null, new MatchFinder(32768, 6)}) {
+        ByteBuffer compressed = ByteBuffer.allocate((int) DeflateCoding.maxEncodedLength(bytes.length));
+        DeflateCoding.gzip(ByteBuffer.wrap(bytes), compressed, matcher);
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed.array(), 0, compressed.position()))) {
+          Tests.check(Arrays.equals(in.readAllBytes(), bytes), "%d bytes do not round trip through java.util.zip", bytes.length);
+        }
+      }
+    }
+
+    /** A gzip File holds exactly the gzip stream, without any bytes left from the upper bound of its length. */
+    Path path = Tests.directory().resolve("text.txt");
+    Files.write(path, text);
+    Path gz = Paths.get(DeflateCoding.compressFile(path.toString(), new MatchFinder(32768, 6)));
+    ByteBuffer compressed = ByteBuffer.allocate((int) DeflateCoding.maxEncodedLength(text.length));
+    DeflateCoding.gzip(ByteBuffer.wrap(text), compressed, new MatchFinder(32768, 6));
+    Tests.check(Files.size(gz) == compressed.position(), "the gzip File has %d bytes instead of %d", Files.size(gz), compressed.position());
+
+    try (GZIPInputStream in = new GZIPInputStream(Files.newInputStream(gz))) {
+      Tests.check(Arrays.equals(in.readAllBytes(), text), "the gzip File does not round trip through java.util.zip");
+    }
+  }
+
+  /** Checks that Blocks appended to a compressed File are recorded by a new Block Index, and that an append interrupted before its Block Index is discarded by the next append. */
+  private static void blockIndex() throws IOException {
+    Path directory = Tests.directory();
+    Path path = directory.resolve("log.txt"), compressed = directory.resolve("log.MZIP");
+    StringBuilder text = new StringBuilder();
+    HuffmanCoding coding = new HuffmanCoding();
+    coding.setBlockSize(4096);
+
+    for (int round = 0; round < 3; round++) {
+      for (int i = 0; i < 2000; i++) {
+        text.append(String.format("round %d line %d\n", round, i));
+      }
+      Files.write(path, text.toString().getBytes());
+      Tests.check(!coding.appendFile(path.toString()).isEmpty(), "append %d failed", round);
+
+      try (FileChannel channel = FileChannel.open(compressed)) {
+        BlockIndex index = BlockIndex.load(channel);
+        Tests.check(index.getLength() == text.length(), "index records %d of %d bytes", index.getLength(), text.length());
+      }
+    }
+
+    /** An append whose Block Index was never written leaves Blocks after the last complete index. */
+    long size = Files.size(compressed);
+    try (RandomAccessFile file = new RandomAccessFile(compressed.toFile(), "rw")) {
+      file.seek(size);
+      file.write("H 100 0 5 (".getBytes());
+    }
+
+    Tests.check(!coding.appendFile(path.toString()).isEmpty(), "append after an interrupted append failed");
+    Files.move(path, directory.resolve("log.original"));
+    Tests.check(!ParallelHuffmanDecoder.decompressFile(compressed.toString()).isEmpty(), "decompression failed");
+    Tests.check(Arrays.equals(Files.readAllBytes(path), text.toString().getBytes()), "appended File does not round trip");
+  }
+
+  /** Checks that a CompactHuffmanTree parses its own bracket representation, and keeps the lengths of the Tree it was built from. */
+  private static void compactTree() {
+    int[] frequencies = new int[257];
+    Random random = new Random(SEED);
+    for (int i = 0; i < 256; i++) {
+      frequencies[i] = (i % 3 == 0 ? 0 : 1 + random.nextInt(1000));
+    }
+
+    CompactHuffmanTree tree = CompactHuffmanTree.fromFrequencies(frequencies);
+    CompactHuffmanTree parsed = CompactHuffmanTree.parse(tree.toString());
+    Tests.check(parsed.toString().equals(tree.toString()), "bracket representation changed after parsing");
+
+    for (int i = 0; i < 256; i++) {
+      if (frequencies[i] > 0) {
+        byte b = (byte) (i - 128);
+        Tests.check(tree.getLength(b) == parsed.getLength(b), "byte %d has a different length after parsing", b);
+      }
+    }
+  }
+
+  /** Checks that length limited byte Code Tables stay within the limit and prefix free, and still round trip. */
+  private static void codeTableLimit() {
+    int[] fibonacci = Tests.fibonacci(40), frequencies = new int[257];
+    System.arraycopy(fibonacci, 0, frequencies, 0, fibonacci.length);
+
+    for (int limit = 8; limit <= 15; limit++) {
+      HuffmanCodeTable table = HuffmanCodeTable.fromFrequencies(frequencies, limit);
+      int[] lengths = new int[fibonacci.length];
+
+      for (int i = 0; i < lengths.length; i++) {
+        lengths[i] = table.getLength((byte) (i - 128));
+        Tests.check(lengths[i] > 0 && lengths[i] <= limit, "byte %d has length %d with limit %d", i - 128, lengths[i], limit);
+      }
+      Tests.check(Tests.kraft(lengths) <= 1, "lengths with limit %d are not prefix free", limit);
+
+      byte[] bytes = new byte[4096];
+      Random random = new Random(SEED);
+      for (int i = 0; i < bytes.length; i++) {
+        bytes[i] = (byte) (random.nextInt(fibonacci.length) - 128);
+      }
+
+      ByteBuffer compressed = ByteBuffer.allocate(bytes.length * 2);
+      HuffmanCoding.encode(table, ByteBuffer.wrap(bytes), compressed);
+      compressed.flip();
+      ByteBuffer decompressed = ByteBuffer.allocate(bytes.length);
+      HuffmanCoding.decode(table, compressed, decompressed);
+      Tests.check(Arrays.equals(decompressed.array(), bytes), "bytes do not round trip with limit %d", limit);
+    }
+  }
+
+  /** Checks that analyze() predicts the exact size written by compressFile() and writeToFile() for small and empty Files. */
+  private static void analyze() throws IOException {
+    Path directory = Tests.directory();
+    Random random = new Random(SEED);
+    byte[] skewed = new byte[100000];
+    for (int i = 0; i < skewed.length; i++) {
+      skewed[i] = (byte) Math.min(255, (int) (-Math.log(random.nextDouble()) * 8));
+    }
+    byte[] noise = new byte[100000];
+    random.nextBytes(noise);
+
+    for (byte[] bytes : new byte[][] {new byte[0], new byte[1000], skewed, noise}) {
+      Path path = directory.resolve("data.bin");
+      Files.write(path, bytes);
+
+      HuffmanCoding.Analysis analysis = HuffmanCoding.analyze(path);
+      HuffmanCoding coding = new HuffmanCoding();
+      coding.setBlockSize(0);
+      coding.compressFile(path.toString());
+      long size = Files.size(Paths.get(coding.writeToFile()));
+      Tests.check(analysis.getCompressedSize() == size, "%d bytes: predicted %d, wrote %d", bytes.length, analysis.getCompressedSize(), size);
+    }
+  }
+
+  /** Checks that a record store reopened after a torn flush keeps every record of its complete Segments, and that appending afterwards works. */
+  private static void recordStore() throws IOException {
+    Path directory = Tests.directory();
+    String fn = directory.resolve("records.log").toString();
+    List<byte[]> records = new ArrayList<byte[]>();
+    Random random = new Random(SEED);
+
+    try (HuffmanRecordStore store = new HuffmanRecordStore(fn, 4096)) {
+      for (int i = 0; i < 1000; i++) {
+        byte[] record = (i % 50 == 0 ? new byte[0] : String.format("{\"id\":%d,\"value\":%d}", i, random.nextInt(100)).getBytes());
+        Tests.check(store.append(record) == i, "record %d has the wrong ID", i);
+        records.add(record);
+      }
+      store.flush();
+    }
+
+    /** The last Segment loses its final bytes, as if the flush was interrupted. */
+    int complete;
+    try (HuffmanRecordStore store = new HuffmanRecordStore(fn, 1 << 20)) {
+      complete = store.size();
+      for (int i = 0; i < 100; i++) {
+        byte[] record = String.format("tail %d", i).getBytes();
+        store.append(record);
+        records.add(record);
+      }
+    }
+    try (RandomAccessFile file = new RandomAccessFile(fn, "rw")) {
+      file.setLength(file.length() - 3);
+    }
+
+    try (HuffmanRecordStore store = new HuffmanRecordStore(fn, 4096)) {
+      Tests.check(store.size() == complete, "%d records after the torn flush instead of %d", store.size(), complete);
+      for (int i = 0; i < complete; i++) {
+        Tests.check(Arrays.equals(store.get(i), records.get(i)), "record %d changed", i);
+      }
+
+      Tests.check(store.append("after".getBytes()) == complete, "append after the torn flush has the wrong ID");
+      store.flush();
+      Tests.check(Arrays.equals(store.get(complete), "after".getBytes()), "the record after the torn flush changed");
+    }
+
+    Tests.check(Files.readAllBytes(Paths.get(fn))[0] == HuffmanRecordStore.SEGMENT, "the store does not start with a Segment");
+  }
+
+  /** Checks that a Segmenter splits where the bytes change, keeps every Block within the block size, and returns the frequency table of each Block. */
+  private static void segmenter() {
+    Random random = new Random(SEED);
+    byte[] bytes = new byte[1 << 18];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) (i < bytes.length / 2 ? 'a' + random.nextInt(4) : random.nextInt(256));
+    }
+    ByteBuffer data = ByteBuffer.wrap(bytes);
+
+    for (int blockSize : new int[] {0, 100, 1 << 14, 1 << 16}) {
+      ArrayList<int[]> frequencies = new ArrayList<int[]>();
+      int[] lengths = new Segmenter().split(data, 0, bytes.length, blockSize, frequencies);
+      Tests.check(lengths.length == frequencies.size(), "%d lengths but %d frequency tables", lengths.length, frequencies.size());
+
+      int offset = 0;
+      for (int i = 0; i < lengths.length; i++) {
+        Tests.check(lengths[i] > 0 && (blockSize == 0 || lengths[i] <= blockSize), "Block of %d bytes with block size %d", lengths[i], blockSize);
+        Tests.check(Arrays.equals(frequencies.get(i), HuffmanBlock.frequencies(data, offset, lengths[i])), "wrong frequency table for Block %d", i);
+        offset += lengths[i];
+      }
+      Tests.check(offset == bytes.length, "Blocks cover %d of %d bytes", offset, bytes.length);
+    }
+
+    int[] lengths = new Segmenter().split(data, 0, bytes.length, 0);
+    Tests.check(lengths.length == 2 && lengths[0] == bytes.length / 2, "expected a split at %d, got %s", bytes.length / 2, Arrays.toString(lengths));
+    Tests.check(new Segmenter().split(data, 0, 0, 0).length == 0, "empty range has Blocks");
+
+    /** Blocks of a singular repeated byte are only compared, so a different byte at the very end must still be counted. */
+    byte[] run = new byte[1 << 16];
+    run[run.length - 1] = 1;
+    ArrayList<int[]> frequencies = new ArrayList<int[]>();
+    new Segmenter().split(ByteBuffer.wrap(run), 0, run.length, 0, frequencies);
+    Tests.check(frequencies.get(frequencies.size() - 1)[1 + 128] == 1, "the last byte of a run was not counted");
+  }
+
+  /** Checks that cancelled compressions delete their output, never exceed the limit, and that compressions after close() fail. */
+  private static void asyncCancel() throws Exception {
+    Path directory = Tests.directory();
+    Random random = new Random(SEED);
+    List<Path> paths = new ArrayList<Path>();
+    for (int i = 0; i < 8; i++) {
+      byte[] bytes = new byte[1 << 20];
+      for (int k = 0; k < bytes.length; k++) {
+        bytes[k] = (byte) random.nextInt(16);
+      }
+      Path path = directory.resolve(String.format("file%d.bin", i));
+      Files.write(path, bytes);
+      paths.add(path);
+    }
+
+    AsyncHuffmanCoding coding = new AsyncHuffmanCoding(2, 1, 1 << 16);
+    List<CompletableFuture<AsyncHuffmanCoding.Result>> results = new ArrayList<CompletableFuture<AsyncHuffmanCoding.Result>>();
+    for (Path path : paths) {
+      results.add(coding.compressAsync(path));
+    }
+
+    /** Every other compression is cancelled, both while running and while waiting. */
+    for (int i = 0; i < results.size(); i += 2) {
+      results.get(i).cancel(true);
+    }
+
+    for (int i = 0; i < results.size(); i++) {
+      Path output = Paths.get(HuffmanCoding.compressedName(paths.get(i).toString()));
+
+      if (i % 2 == 0) {
+        Tests.check(results.get(i).isCancelled(), "compression %d was not cancelled", i);
+      } else {
+        AsyncHuffmanCoding.Result result = results.get(i).get(30, TimeUnit.SECONDS);
+        Tests.check(Files.size(output) == result.getOutputSize(), "compression %d wrote the wrong size", i);
+      }
+    }
+
+    /** A cancelled compression deletes its output before its place is released, and the limit is 1, so the outputs are gone once the following compressions completed. */
+    for (int i = 0; i < results.size(); i += 2) {
+      Tests.check(!Files.exists(Paths.get(HuffmanCoding.compressedName(paths.get(i).toString()))), "cancelled compression %d left its output", i);
+    }
+
+    coding.close();
+    try {
+      coding.compressAsync(paths.get(1)).get(5, TimeUnit.SECONDS);
+      Tests.check(false, "a compression after close() succeeded");
+    } catch (ExecutionException e) {
+    }
+  }
+
+  /** Checks that streamFile() leaves an existing compressed File unchanged if no Block fits within the memory budget. */
+  private static void streamBudget() throws IOException {
+    Path directory = Tests.directory();
+    Path path = directory.resolve("data.txt"), compressed = directory.resolve("data.MZIP");
+    Files.write(path, "abracadabra ".repeat(1000).getBytes());
+    Tests.check(!new HuffmanCoding().streamFile(path.toString()).isEmpty(), "streamFile() failed");
+    byte[] before = Files.readAllBytes(compressed);
+
+    HuffmanCoding coding = new HuffmanCoding();
+    coding.setMaxBufferBytes(100);
+    try {
+      coding.streamFile(path.toString());
+      Tests.check(false, "a budget of 100 bytes was accepted");
+    } catch (IllegalStateException e) {
+    }
+
+    Tests.check(Arrays.equals(Files.readAllBytes(compressed), before), "the compressed File was changed");
+  }
+
+  /** Checks that decompression only uses the last component of the stored name, and refuses to overwrite the compressed File. */
+  private static void decompressedPath() throws IOException {
+    Path directory = Paths.get("archives"), archive = directory.resolve("a.MZIP");
+    Tests.check(HuffmanCoding.decompressedPath(archive.toString(), "../../etc/passwd").equals(directory.resolve("passwd")), "the stored directories were kept");
+    Tests.check(HuffmanCoding.decompressedPath(archive.toString(), "elsewhere/a.txt").equals(directory.resolve("a.txt")), "the name was not resolved against the directory");
+
+    for (String name : new String[] {"a.MZIP", "x/a.MZIP", "..", "", "/"}) {
+      try {
+        HuffmanCoding.decompressedPath(archive.toString(), name);
+        Tests.check(false, "the stored name \"%s\" was accepted", name);
+      } catch (IOException e) {
+      }
+    }
+  }
+
+  /** Checks that levels 1 and 2, which sample their Huffman Binary Tree, still write a singular repeated byte as RUN Blocks, both to a buffer and to a compressed File. */
+  private static void sampledRun() throws IOException {
+    Path directory = Tests.directory(), path = directory.resolve("run.bin");
+    byte[] bytes = new byte[3 << 20];
+    Arrays.fill(bytes, (byte) 'x');
+    bytes[bytes.length - 1] = 'y';
+
+    for (int level = 1; level <= 2; level++) {
+      HuffmanCoding coding = new HuffmanCoding();
+      coding.setLevel(level);
+      ByteBuffer compressed = ByteBuffer.allocate((int) coding.maxEncodedLength(bytes.length));
+      coding.encode(ByteBuffer.wrap(bytes), compressed);
+      Tests.check(compressed.position() < 200000, "level %d compressed a run to %d bytes", level, compressed.position());
+
+      compressed.flip();
+      ByteBuffer decompressed = ByteBuffer.allocate(bytes.length);
+      HuffmanCoding.decode(compressed, decompressed);
+      Tests.check(Arrays.equals(decompressed.array(), bytes), "run does not round trip at level %d", level);
+
+      Files.write(path, bytes);
+      coding.compressFile(path.toString());
+      Path archive = Paths.get(coding.writeToFile());
+      Tests.check(Files.size(archive) < 200000, "level %d wrote a run as %d bytes", level, Files.size(archive));
+      Files.delete(path);
+      Tests.check(!HuffmanCoding.decompressFile(archive.toString()).isEmpty(), "decompression failed at level %d", level);
+      Tests.check(Arrays.equals(Files.readAllBytes(path), bytes), "run File does not round trip at level %d", level);
+    }
+  }
+
+  /** Checks that escaped Code Tables leave their frequency table unchanged and give every byte a bit sequence, and that a sampled level only pays for bytes which were not sampled within the Blocks containing them. */
+  private static void sampledTable() {
+    int[] frequencies = new int[257];
+    frequencies['a' + 128] = 300;
+    frequencies['b' + 128] = 700;
+    int[] copy = frequencies.clone();
+    HuffmanCodeTable table = HuffmanCodeTable.escaped(frequencies);
+    Tests.check(Arrays.equals(frequencies, copy), "the frequency table was changed");
+    for (int i = 0; i < 256; i++) {
+      Tests.check(table.getLength((byte) (i - 128)) > 0, "byte %d has no bit sequence", i - 128);
+    }
+
+    Random random = new Random(SEED);
+    byte[] bytes = new byte[1 << 20];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) (random.nextInt(10) < 3 ? 'a' : 'b');
+    }
+    bytes[bytes.length - 1] = 'z';
+
+    HuffmanCoding coding = new HuffmanCoding();
+    coding.setLevel(1);
+    coding.setBlockSize(1 << 16);
+    ByteBuffer compressed = ByteBuffer.allocate((int) coding.maxEncodedLength(bytes.length));
+    coding.encode(ByteBuffer.wrap(bytes), compressed);
+    Tests.check(compressed.position() < bytes.length / 8 * 1.05, "two bytes compressed to %d bytes at level 1", compressed.position());
+
+    compressed.flip();
+    ByteBuffer decompressed = ByteBuffer.allocate(bytes.length);
+    HuffmanCoding.decode(compressed, decompressed);
+    Tests.check(Arrays.equals(decompressed.array(), bytes), "bytes do not round trip at level 1");
+  }
+
+  /** Checks that the ParallelHuffmanDecoder deletes its partial output when a Block cannot be decoded. */
+  private static void parallelFailure() throws IOException {
+    Path directory = Tests.directory(), path = directory.resolve("text.txt");
+    Files.write(path, "a stitch in time saves nine. ".repeat(10000).getBytes());
+    HuffmanCoding coding = new HuffmanCoding();
+    coding.setBlockSize(0);
+    coding.compressFile(path.toString());
+    Path compressed = Paths.get(coding.writeToFile());
+    Files.delete(path);
+
+    /** The Huffman Binary Tree of the only Block is parsed while decoding, so breaking its bracket representation fails within a Block. */
+    byte[] bytes = Files.readAllBytes(compressed);
+    int tree = new String(bytes, 0, 200).indexOf('(', new String(bytes, 0, 200).indexOf('\n'));
+    bytes[tree] = ')';
+    Files.write(compressed, bytes);
+
+    try {
+      ParallelHuffmanDecoder.decompressFile(compressed.toString());
+    } catch (RuntimeException e) {
+    }
+    Tests.check(!Files.exists(path), "the partial decompressed File was left behind");
+  }
+}